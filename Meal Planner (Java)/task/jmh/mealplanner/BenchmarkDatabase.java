@@ -0,0 +1,57 @@
+package mealplanner;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+// In-process H2 database in PostgreSQL mode, stands in for the real server so benchmarks run offline
+public final class BenchmarkDatabase {
+    private static final int CHUNK_SIZE = 10_000;
+    private static int counter;
+
+    private BenchmarkDatabase() {
+    }
+
+    public static DatabaseManager create() throws SQLException {
+        return create(SchemaMigrator.latestVersion());
+    }
+
+    public static DatabaseManager create(int schemaVersion) throws SQLException {
+        return create(schemaVersion, 4);
+    }
+
+    public static synchronized DatabaseManager create(int schemaVersion, int maxPoolSize) throws SQLException {
+        String url = "jdbc:h2:mem:bench" + (counter++) + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        return new DatabaseManager(url, "sa", "", 1, maxPoolSize, schemaVersion);
+    }
+
+    // A manager on a named in-memory database, each call opens it again like one more instance of the service would
+    public static DatabaseManager open(String name, int maxPoolSize) throws SQLException {
+        String url = "jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        return new DatabaseManager(url, "sa", "", 1, maxPoolSize, SchemaMigrator.latestVersion());
+    }
+
+    // Store meals with fresh ids from the manager, returns the meals under those ids
+    public static List<Meal> seed(DatabaseManager dbManager, List<Meal> meals) throws SQLException {
+        MealBatchWriter writer = new MealBatchWriter(dbManager);
+        List<Meal> stored = new ArrayList<>(meals.size());
+        for (int from = 0; from < meals.size(); from += CHUNK_SIZE) {
+            List<Meal> chunk = new ArrayList<>(CHUNK_SIZE);
+            for (Meal meal : meals.subList(from, Math.min(from + CHUNK_SIZE, meals.size()))) {
+                chunk.add(meal.withId(dbManager.getNextMealId()));
+            }
+            try (Connection connection = dbManager.getConnection()) {
+                connection.setAutoCommit(false);
+                writer.insert(connection, chunk);
+                connection.commit();
+            }
+            stored.addAll(chunk);
+        }
+        return stored;
+    }
+
+    public static void seedPlan(DatabaseManager dbManager, WeeklyPlan plan) throws SQLException {
+        new PlanStore(dbManager).save(1, plan.asMap());
+    }
+}
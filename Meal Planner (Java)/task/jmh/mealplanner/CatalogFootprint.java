@@ -0,0 +1,80 @@
+package mealplanner;
+
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+// Heap used by a synthetic catalog with interned ingredient ids vs one LinkedHashSet of fresh strings per meal,
+// and the object graph of the immutable Meal vs the old mutable layout measured with JOL.
+// Run with: gradle footprint -PfootprintMeals=1000000
+public class CatalogFootprint {
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        long baseline = usedHeap();
+        List<Meal> meals = SyntheticCatalog.meals(count, 42);
+        long interned = usedHeap() - baseline;
+
+        // The pre-dictionary layout: every meal owns a LinkedHashSet of strings read from its own rows
+        baseline = usedHeap();
+        List<LinkedHashSet<String>> legacy = new ArrayList<>(count);
+        for (Meal meal : meals) {
+            LinkedHashSet<String> ingredients = new LinkedHashSet<>();
+            for (String ingredient : meal.getIngredients()) {
+                ingredients.add(new String(ingredient.toCharArray()));
+            }
+            legacy.add(ingredients);
+        }
+        long legacySets = usedHeap() - baseline;
+
+        System.out.printf("meals: %d, distinct ingredients: %d%n", count, IngredientDictionary.shared().size());
+        System.out.printf("catalog with interned ids: %,d bytes (%.1f bytes/meal)%n", interned, (double) interned / count);
+        System.out.printf("extra for per-meal LinkedHashSet<String>: %,d bytes (%.1f bytes/meal)%n", legacySets, (double) legacySets / count);
+
+        // Same names and ingredient arrays in both graphs, so the difference is the meal objects themselves
+        List<MutableMeal> mutable = new ArrayList<>(count);
+        for (Meal meal : meals) {
+            mutable.add(new MutableMeal(meal));
+        }
+        long immutableBytes = GraphLayout.parseInstance(meals.toArray()).totalSize();
+        long mutableBytes = GraphLayout.parseInstance(mutable.toArray()).totalSize();
+        System.out.printf("Meal instance: %d bytes, old layout instance: %d bytes%n",
+                ClassLayout.parseClass(Meal.class).instanceSize(), ClassLayout.parseClass(MutableMeal.class).instanceSize());
+        System.out.printf("immutable meals: %,d bytes (%.1f bytes/meal)%n", immutableBytes, (double) immutableBytes / count);
+        System.out.printf("old mutable meals: %,d bytes (%.1f bytes/meal)%n", mutableBytes, (double) mutableBytes / count);
+        // Keep both catalogs alive until after the measurements
+        Reference.reachabilityFence(meals);
+        Reference.reachabilityFence(legacy);
+        Reference.reachabilityFence(mutable);
+    }
+
+    // The layout Meal had before: a category string per meal and an unused plan map allocated with every instance
+    private static class MutableMeal {
+        private int id;
+        private String category;
+        private String name;
+        private int[] ingredientIds;
+        private final Map<String, Map<String, Meal>> weeklyPlan = new LinkedHashMap<>();
+
+        MutableMeal(Meal meal) {
+            id = meal.getId();
+            category = meal.getCategory().label();
+            name = meal.getName();
+            ingredientIds = meal.copyIngredientIds();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
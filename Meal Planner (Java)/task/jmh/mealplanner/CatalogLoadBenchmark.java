@@ -0,0 +1,39 @@
+package mealplanner;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CatalogLoadBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int catalogSize;
+
+    private DatabaseManager dbManager;
+    private MealCatalogLoader loader;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dbManager = BenchmarkDatabase.create();
+        BenchmarkDatabase.seed(dbManager, SyntheticCatalog.meals(catalogSize, 42));
+        loader = new MealCatalogLoader(dbManager);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dbManager.close();
+    }
+
+    // The query and grouping behind MealManager.loadMealsFromDatabase
+    @Benchmark
+    public List<Meal> loadAll() throws SQLException {
+        return loader.loadAll();
+    }
+}
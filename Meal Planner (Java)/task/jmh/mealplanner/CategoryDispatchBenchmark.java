@@ -0,0 +1,72 @@
+package mealplanner;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Per-meal category dispatch: string equals chains, as the code did before MealCategory, vs an enum switch
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CategoryDispatchBenchmark {
+    @Param({"100000"})
+    public int catalogSize;
+
+    private Meal[] meals;
+    private String[] labels;
+
+    @Setup
+    public void setUp() {
+        List<Meal> catalog = SyntheticCatalog.meals(catalogSize, 42);
+        meals = catalog.toArray(new Meal[0]);
+        labels = new String[meals.length];
+        for (int i = 0; i < meals.length; i++) {
+            // Fresh strings, like category values read from rows or requests
+            labels[i] = new String(meals[i].getCategory().label());
+        }
+    }
+
+    @Benchmark
+    public int stringCategory() {
+        int[] counts = new int[3];
+        for (String category : labels) {
+            if (category.equals("breakfast")) {
+                counts[0]++;
+            } else if (category.equals("lunch")) {
+                counts[1]++;
+            } else if (category.equals("dinner")) {
+                counts[2]++;
+            }
+        }
+        return counts[0] + 2 * counts[1] + 3 * counts[2];
+    }
+
+    @Benchmark
+    public int enumCategory() {
+        int[] counts = new int[3];
+        for (Meal meal : meals) {
+            switch (meal.getCategory()) {
+                case BREAKFAST -> counts[0]++;
+                case LUNCH -> counts[1]++;
+                case DINNER -> counts[2]++;
+            }
+        }
+        return counts[0] + 2 * counts[1] + 3 * counts[2];
+    }
+
+    // Parsing untrusted input still starts from a string, once per request instead of once per meal
+    @Benchmark
+    public int parseCategory() {
+        int valid = 0;
+        for (String category : labels) {
+            if (MealCategory.of(category) != null) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+}
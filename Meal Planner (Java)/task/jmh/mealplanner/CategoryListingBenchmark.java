@@ -0,0 +1,51 @@
+package mealplanner;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class CategoryListingBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int catalogSize;
+
+    private final Map<String, Meal> meals = new LinkedHashMap<>();
+    private final CategoryIndex categoryIndex = new CategoryIndex();
+
+    @Setup
+    public void setUp() {
+        for (Meal meal : SyntheticCatalog.meals(catalogSize, 42)) {
+            meals.put(meal.getName(), meal);
+            categoryIndex.add(meal);
+        }
+    }
+
+    // Full scan plus sort, as getMealsByCategory and its callers did before CategoryIndex
+    @Benchmark
+    public void scanAndSort(Blackhole blackhole) {
+        List<Meal> categoryMeals = new ArrayList<>();
+        for (Meal meal : meals.values()) {
+            if (meal.getCategory() == MealCategory.LUNCH) {
+                categoryMeals.add(meal);
+            }
+        }
+        categoryMeals.sort(Comparator.comparing(Meal::getName));
+        for (Meal meal : categoryMeals) {
+            blackhole.consume(meal);
+        }
+    }
+
+    @Benchmark
+    public void categoryIndex(Blackhole blackhole) {
+        for (Meal meal : categoryIndex.list("lunch")) {
+            blackhole.consume(meal);
+        }
+    }
+}
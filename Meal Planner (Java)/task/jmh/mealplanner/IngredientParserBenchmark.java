@@ -0,0 +1,54 @@
+package mealplanner;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IngredientParserBenchmark {
+    @Param({"3", "12"})
+    public int ingredientCount;
+
+    private String input;
+
+    @Setup
+    public void setUp() {
+        String[] words = {"eggs", "milk", "salt", "butter", "flour", "sugar", "olive oil", "black pepper"};
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < ingredientCount; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(words[i % words.length]).append(i >= words.length ? " extra" : "");
+        }
+        input = sb.toString();
+    }
+
+    // Validation and parsing as promptForIngredients did it before IngredientParser
+    @Benchmark
+    public LinkedHashSet<String> regexValidateThenSplit() {
+        for (String ingredient : input.split(",\\s*")) {
+            Pattern pattern = Pattern.compile("^[a-zA-Z ]+$");
+            Matcher matcher = pattern.matcher(ingredient);
+            if (!matcher.matches()) {
+                return null;
+            }
+        }
+        return new LinkedHashSet<>(Arrays.asList(input.split(",\\s*")));
+    }
+
+    @Benchmark
+    public LinkedHashSet<String> singlePassParser() {
+        IngredientParser.Result result = IngredientParser.parse(input);
+        return result.isValid() ? result.getIngredients() : null;
+    }
+}
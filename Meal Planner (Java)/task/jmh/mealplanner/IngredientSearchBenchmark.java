@@ -0,0 +1,55 @@
+package mealplanner;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class IngredientSearchBenchmark {
+    @Param({"100000", "1000000"})
+    public int catalogSize;
+
+    private final IngredientIndex index = new IngredientIndex();
+    private List<Meal> meals;
+    private MealQuery query;
+
+    @Setup
+    public void setUp() {
+        meals = SyntheticCatalog.meals(catalogSize, 42);
+        for (Meal meal : meals) {
+            index.add(meal);
+        }
+        // "has two common ingredients, one of two rarer ones, but not a third"
+        query = new MealQuery()
+                .allOf(SyntheticCatalog.ingredient(0)).allOf(SyntheticCatalog.ingredient(1))
+                .anyOf(SyntheticCatalog.ingredient(50)).anyOf(SyntheticCatalog.ingredient(60))
+                .noneOf(SyntheticCatalog.ingredient(2));
+    }
+
+    // What searching looked like without the index: scan every meal's ingredient set
+    @Benchmark
+    public List<Meal> scanAllMeals() {
+        List<Meal> found = new ArrayList<>();
+        for (Meal meal : meals) {
+            var ingredients = meal.getIngredients();
+            if (ingredients.containsAll(query.getAllOf())
+                    && query.getAnyOf().stream().anyMatch(ingredients::contains)
+                    && query.getNoneOf().stream().noneMatch(ingredients::contains)) {
+                found.add(meal);
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public List<IngredientIndex.Match> invertedIndex() {
+        return index.search(query, 20);
+    }
+}
@@ -0,0 +1,39 @@
+package mealplanner;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ListPlanBenchmark {
+    @Param({"1000", "100000"})
+    public int catalogSize;
+
+    private DatabaseManager dbManager;
+    private MealManager mealManager;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dbManager = BenchmarkDatabase.create();
+        BenchmarkDatabase.seed(dbManager, SyntheticCatalog.meals(catalogSize, 42));
+        mealManager = new MealManager(dbManager);
+        BenchmarkDatabase.seedPlan(dbManager, mealManager.generatePlan(new PlanRequest().setSeed(7)));
+    }
+
+    @TearDown
+    public void tearDown() {
+        dbManager.close();
+    }
+
+    // The read side of listPlan without printing
+    @Benchmark
+    public WeeklyPlan loadPlan() throws SQLException {
+        return mealManager.loadPlan();
+    }
+}
@@ -0,0 +1,190 @@
+package mealplanner;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Several service instances in one JVM, each with its own pool and catalog on one shared in-memory database.
+// All of them add meals at the same time while their catalog syncs poll the change feed; the harness then
+// waits for every catalog to hold every stored meal, checks ids and names against the database and prints
+// the replication lag.
+// While the instances write, one transaction holds its change id open past the gap timeout before committing and
+// another rolls back, so every catalog has to skip both gaps and still pick up the late meal.
+// Run with: gradle catalogSync -PsyncInstances=4 -PsyncMeals=2000 -PsyncPersistence=write-behind
+public class MultiInstanceSync {
+    private static final int SEED_MEALS = 10_000;
+    private static final long POLL_INTERVAL_MS = 50;
+    private static final long CONVERGE_TIMEOUT_MS = 60_000;
+    // Same property and default as CatalogSync, the late transaction stays open a little longer
+    private static final long GAP_TIMEOUT_MS = Long.getLong("mealplanner.sync.gapTimeoutMs", 10_000);
+
+    public static void main(String[] args) throws Exception {
+        int instances = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int mealsPerInstance = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        boolean writeBehind = args.length > 2 && args[2].equals("write-behind");
+
+        List<DatabaseManager> databases = new ArrayList<>();
+        List<MealManager> managers = new ArrayList<>();
+        try {
+            for (int i = 0; i < instances; i++) {
+                DatabaseManager dbManager = BenchmarkDatabase.open("sync", 4);
+                if (i == 0) {
+                    BenchmarkDatabase.seed(dbManager, SyntheticCatalog.meals(SEED_MEALS, 42));
+                }
+                databases.add(dbManager);
+                MealManager mealManager = new MealManager(new JdbcMealRepository(dbManager), writeBehind, null);
+                mealManager.startCatalogSync(POLL_INTERVAL_MS);
+                managers.add(mealManager);
+            }
+            run(databases.get(0), managers, mealsPerInstance, writeBehind);
+        } finally {
+            for (MealManager mealManager : managers) {
+                mealManager.close();
+            }
+            for (DatabaseManager dbManager : databases) {
+                dbManager.close();
+            }
+        }
+    }
+
+    private static void run(DatabaseManager dbManager, List<MealManager> managers, int mealsPerInstance,
+                            boolean writeBehind) throws Exception {
+        int instances = managers.size();
+        AtomicLong failures = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        Thread gaps = new Thread(() -> {
+            try {
+                start.await();
+                holdGaps();
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not open the gaps", e);
+            }
+        }, "gaps");
+        gaps.start();
+        for (int i = 0; i < instances; i++) {
+            MealManager mealManager = managers.get(i);
+            String node = SyntheticCatalog.letters(i);
+            List<Meal> meals = SyntheticCatalog.meals(mealsPerInstance, 100 + i);
+            Thread writer = new Thread(() -> {
+                try {
+                    start.await();
+                    for (Meal meal : meals) {
+                        Meal named = Meal.create(0, meal.getCategory(), "node " + node + " " + meal.getName(),
+                                meal.getIngredients());
+                        try {
+                            if (mealManager.addMeal(named) == null) {
+                                failures.incrementAndGet();
+                            }
+                        } catch (SQLException | IllegalStateException e) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "writer-" + node);
+            writer.start();
+            writers.add(writer);
+        }
+
+        long writeStart = System.nanoTime();
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        for (MealManager mealManager : managers) {
+            mealManager.flushWrites();
+        }
+        long writeMillis = (System.nanoTime() - writeStart) / 1_000_000;
+        gaps.join();
+
+        // Every write is flushed and the late meal committed, so the database holds what the catalogs should
+        int expected = new JdbcMealRepository(dbManager).loadMealIds().size();
+        if (expected != SEED_MEALS + instances * mealsPerInstance + 1 - failures.get()) {
+            throw new IllegalStateException("Database holds " + expected + " meals, queued writes were lost");
+        }
+        long convergeStart = System.nanoTime();
+        while (!converged(managers, expected)) {
+            if ((System.nanoTime() - convergeStart) / 1_000_000 > CONVERGE_TIMEOUT_MS) {
+                throw new IllegalStateException("Catalogs did not converge within " + CONVERGE_TIMEOUT_MS + " ms");
+            }
+            Thread.sleep(10);
+        }
+        long convergeMillis = (System.nanoTime() - convergeStart) / 1_000_000;
+
+        List<Meal> stored = new JdbcMealRepository(dbManager).loadAllMeals();
+        for (MealManager mealManager : managers) {
+            check(mealManager, stored);
+        }
+
+        System.out.printf("%d instances added %d meals each (%s) in %d ms, %d failed%n",
+                instances, mealsPerInstance, writeBehind ? "write-behind" : "sync", writeMillis, failures.get());
+        System.out.printf("all %d catalogs hold the %d stored meals, %d ms after the last write%n",
+                instances, stored.size(), convergeMillis);
+        System.out.printf("replication lag (poll every %d ms): %s%n", POLL_INTERVAL_MS, Metrics.timer("catalogSync.lag"));
+        for (int i = 0; i < instances; i++) {
+            CatalogSync sync = managers.get(i).getCatalogSync();
+            System.out.printf("instance %s: %s gapsSkipped=%d gapsRecovered=%d reconciled=%d%n",
+                    SyntheticCatalog.letters(i), sync, sync.getSkippedGaps(), sync.getRecoveredGaps(),
+                    sync.getReconciledMeals());
+        }
+    }
+
+    // One insert rolls back and one commits only after the gap timeout, both leave gaps in the change feed
+    private static void holdGaps() throws SQLException, InterruptedException {
+        // A pool of its own, so the open transactions take no connections from the instances
+        try (DatabaseManager dbManager = BenchmarkDatabase.open("sync", 2);
+             Connection rolledBack = dbManager.getConnection(); Connection late = dbManager.getConnection()) {
+            MealBatchWriter mealWriter = new MealBatchWriter(dbManager);
+            rolledBack.setAutoCommit(false);
+            late.setAutoCommit(false);
+            mealWriter.insert(rolledBack, List.of(gapMeal(dbManager, "rolled back")));
+            mealWriter.insert(late, List.of(gapMeal(dbManager, "late commit")));
+            Thread.sleep(POLL_INTERVAL_MS * 4);
+            rolledBack.rollback();
+            Thread.sleep(GAP_TIMEOUT_MS + POLL_INTERVAL_MS * 4);
+            late.commit();
+            rolledBack.setAutoCommit(true);
+            late.setAutoCommit(true);
+        }
+    }
+
+    private static Meal gapMeal(DatabaseManager dbManager, String name) {
+        return Meal.create(dbManager.getNextMealId(), MealCategory.of("dinner"), name, new LinkedHashSet<>(List.of("salt")));
+    }
+
+    private static boolean converged(List<MealManager> managers, int expected) {
+        for (MealManager mealManager : managers) {
+            if (catalogSize(mealManager) < expected) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int catalogSize(MealManager mealManager) {
+        int size = 0;
+        for (String category : WeeklyPlan.CATEGORIES) {
+            size += mealManager.getMealsByCategory(category).size();
+        }
+        return size;
+    }
+
+    // Every stored meal under its stored id, and nothing else
+    private static void check(MealManager mealManager, List<Meal> stored) {
+        if (catalogSize(mealManager) != stored.size()) {
+            throw new IllegalStateException("Catalog holds " + catalogSize(mealManager) + " meals, the database " + stored.size());
+        }
+        for (Meal meal : stored) {
+            Meal cached = mealManager.getMeal(meal.getName());
+            if (cached == null || cached.getId() != meal.getId()) {
+                throw new IllegalStateException("Meal '" + meal.getName() + "' missing or under another id");
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package mealplanner;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Type-ahead and typo lookup over meal names: the trie vs scanning every name
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class NameIndexBenchmark {
+    private static final int LIMIT = 10;
+
+    @Param({"100000", "1000000"})
+    public int catalogSize;
+
+    private final NameIndex index = new NameIndex();
+    private List<Meal> meals;
+    private int[] popularity;
+    private String prefix;
+    private String typo;
+
+    @Setup
+    public void setUp() {
+        meals = SyntheticCatalog.meals(catalogSize, 42);
+        popularity = new int[meals.size()];
+        Random random = new Random(7);
+        for (int i = 0; i < meals.size(); i++) {
+            Meal meal = meals.get(i);
+            index.add(meal);
+            // A few meals are planned a lot, most rarely
+            double u = random.nextDouble();
+            popularity[i] = (int) (u * u * u * 1000);
+            index.recordUse(meal, popularity[i]);
+        }
+        prefix = "meal " + SyntheticCatalog.letters(catalogSize / 3).substring(0, 2);
+        // One letter swapped and one dropped
+        String name = meals.get(catalogSize / 2).getName();
+        typo = name.substring(0, 1) + name.charAt(2) + name.charAt(1) + name.substring(3, name.length() - 1);
+    }
+
+    @Benchmark
+    public List<Meal> completePrefix() {
+        return index.complete(prefix, LIMIT, null);
+    }
+
+    @Benchmark
+    public List<NameIndex.Match> closestName() {
+        return index.closest(typo, 2, LIMIT, null);
+    }
+
+    // Completion without the index: filter every name and sort the hits by popularity
+    @Benchmark
+    public List<Meal> scanPrefix() {
+        List<Integer> hits = new ArrayList<>();
+        for (int i = 0; i < meals.size(); i++) {
+            if (meals.get(i).getName().startsWith(prefix)) {
+                hits.add(i);
+            }
+        }
+        hits.sort(Comparator.<Integer>comparingInt(i -> popularity[i]).reversed());
+        List<Meal> found = new ArrayList<>();
+        for (int i = 0; i < Math.min(LIMIT, hits.size()); i++) {
+            found.add(meals.get(hits.get(i)));
+        }
+        return found;
+    }
+}
@@ -0,0 +1,60 @@
+package mealplanner;
+
+import java.time.Duration;
+import java.util.Random;
+
+// Plan cost and remaining target violation of PlanOptimizer as the time budget and worker count grow.
+// Run with: gradle optimizerQuality -PoptimizerMeals=300000
+public class OptimizerQuality {
+    private static final int[] BUDGETS_MS = {10, 50, 200, 1000, 5000};
+    private static final int SEEDS = 3;
+
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 300_000;
+        CategoryIndex categoryIndex = new CategoryIndex();
+        for (Meal meal : SyntheticCatalog.meals(count, 42)) {
+            categoryIndex.add(meal);
+        }
+        NutritionTable nutrition = syntheticNutrition(7);
+        PlanGenerator generator = new PlanGenerator(categoryIndex);
+        PlanTargets targets = new PlanTargets()
+                .setCalories(1_800, 2_200)
+                .setMinProtein(70)
+                .setMaxFat(80)
+                .setWeeklyBudget(60);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.printf("meals: %d, cores: %d%n", count, cores);
+        for (int workers : new int[]{1, cores}) {
+            try (PlanOptimizer optimizer = new PlanOptimizer(generator, nutrition, workers)) {
+                for (int budget : BUDGETS_MS) {
+                    double cost = 0;
+                    double penalty = 0;
+                    long iterations = 0;
+                    int feasible = 0;
+                    for (int seed = 0; seed < SEEDS; seed++) {
+                        PlanOptimizer.Result result = optimizer.optimize(new PlanRequest().setSeed(seed), targets,
+                                Duration.ofMillis(budget));
+                        cost += result.getCost();
+                        penalty += result.getPenalty();
+                        iterations += result.getIterations();
+                        feasible += result.isFeasible() ? 1 : 0;
+                    }
+                    System.out.printf("workers %2d, budget %5d ms: cost %.2f, penalty %.3f, feasible %d/%d, %,d iterations%n",
+                            workers, budget, cost / SEEDS, penalty / SEEDS, feasible, SEEDS, iterations / SEEDS);
+                }
+            }
+        }
+    }
+
+    // Per-portion values for every synthetic ingredient, roughly 50-350 kcal and 0.20-3.20 each
+    static NutritionTable syntheticNutrition(long seed) {
+        Random random = new Random(seed);
+        NutritionTable table = new NutritionTable();
+        for (int i = 0; i < SyntheticCatalog.INGREDIENT_POOL; i++) {
+            table.put(SyntheticCatalog.ingredient(i), new Nutrition(50 + random.nextInt(300), random.nextInt(25),
+                    random.nextInt(40), random.nextInt(20), 0.2 + random.nextInt(300) / 100.0));
+        }
+        return table;
+    }
+}
@@ -0,0 +1,53 @@
+package mealplanner;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Caller-visible latency of addMeal and plan saves, synchronous commits vs the write-behind queue
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class PersistenceBenchmark {
+    @Param({"sync", "write-behind"})
+    public String persistence;
+
+    private DatabaseManager dbManager;
+    private MealManager mealManager;
+    private WeeklyPlan plan;
+    private int next;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dbManager = BenchmarkDatabase.create();
+        BenchmarkDatabase.seed(dbManager, SyntheticCatalog.meals(10_000, 42));
+        mealManager = new MealManager(dbManager, persistence.equals("write-behind"));
+        plan = mealManager.generatePlan(new PlanRequest().setSeed(7));
+    }
+
+    @TearDown
+    public void tearDown() {
+        // Flushing the queue is part of the write-behind cost, it just isn't paid by the caller
+        mealManager.close();
+        dbManager.close();
+    }
+
+    @Benchmark
+    public void addMeal() throws SQLException {
+        int id = next++;
+        mealManager.addMeal(Meal.create(List.of("breakfast", "lunch", "dinner").get(id % 3),
+                "added " + SyntheticCatalog.letters(id),
+                new LinkedHashSet<>(List.of(SyntheticCatalog.ingredient(id % SyntheticCatalog.INGREDIENT_POOL), SyntheticCatalog.ingredient(id % 37)))));
+    }
+
+    @Benchmark
+    public void savePlan() throws SQLException {
+        mealManager.savePlan(plan);
+    }
+}
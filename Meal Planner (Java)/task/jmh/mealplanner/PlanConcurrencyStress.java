@@ -0,0 +1,51 @@
+package mealplanner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Many households generating and saving plans at once against one shared catalog.
+// Prints plans/sec for growing thread counts. Run with: gradle planStress
+public class PlanConcurrencyStress {
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8, 16, 32};
+    private static final int HOUSEHOLDS_PER_THREAD = 50;
+
+    public static void main(String[] args) throws Exception {
+        long secondsPerRound = args.length > 0 ? Long.parseLong(args[0]) : 5;
+        int maxThreads = THREAD_COUNTS[THREAD_COUNTS.length - 1];
+
+        try (DatabaseManager dbManager = BenchmarkDatabase.create(SchemaMigrator.latestVersion(), maxThreads)) {
+            BenchmarkDatabase.seed(dbManager, SyntheticCatalog.meals(10_000, 42));
+            MealManager mealManager = new MealManager(dbManager);
+            String week = PlanSession.weekOf(java.time.LocalDate.now());
+
+            for (int threads : THREAD_COUNTS) {
+                AtomicLong plans = new AtomicLong();
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(secondsPerRound);
+                ExecutorService executor = Executors.newFixedThreadPool(threads);
+                List<Future<?>> workers = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    int thread = t;
+                    workers.add(executor.submit(() -> {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        while (System.nanoTime() < deadline) {
+                            // Households overlap between threads so some writes hit the same plan
+                            String user = "household" + SyntheticCatalog.letters(random.nextInt(HOUSEHOLDS_PER_THREAD * threads));
+                            PlanSession session = mealManager.session(user, week);
+                            session.save(session.generate(new PlanRequest().setSeed(random.nextLong()).setNoRepeatDays(2)));
+                            plans.incrementAndGet();
+                        }
+                        return thread;
+                    }));
+                }
+                for (Future<?> worker : workers) {
+                    worker.get();
+                }
+                executor.shutdown();
+                System.out.printf("threads=%2d  plans/sec=%8.1f  pool: %s%n",
+                        threads, plans.get() / (double) secondsPerRound, dbManager.getPool());
+            }
+        }
+    }
+}
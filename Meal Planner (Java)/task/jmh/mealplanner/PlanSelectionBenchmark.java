@@ -0,0 +1,77 @@
+package mealplanner;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PlanSelectionBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int catalogSize;
+
+    private final CategoryIndex categoryIndex = new CategoryIndex();
+    private PlanGenerator generator;
+    private String[] choices;
+
+    @Setup
+    public void setUp() {
+        for (Meal meal : SyntheticCatalog.meals(catalogSize, 42)) {
+            categoryIndex.add(meal);
+        }
+        generator = new PlanGenerator(categoryIndex);
+        // The names a user types for the 21 slots, taken from a generated plan
+        WeeklyPlan plan = generator.generate(new PlanRequest().setSeed(7));
+        choices = new String[WeeklyPlan.DAYS.length * WeeklyPlan.CATEGORIES.length];
+        int slot = 0;
+        for (String day : WeeklyPlan.DAYS) {
+            for (String category : WeeklyPlan.CATEGORIES) {
+                choices[slot++] = plan.get(day, category).getName();
+            }
+        }
+    }
+
+    // The equalsIgnoreCase loop planMeals ran for each slot before the index lookup
+    @Benchmark
+    public int linearNameLookup() {
+        int found = 0;
+        int slot = 0;
+        for (String ignored : WeeklyPlan.DAYS) {
+            for (String category : WeeklyPlan.CATEGORIES) {
+                Collection<Meal> categoryMeals = categoryIndex.list(category);
+                String choice = choices[slot++];
+                for (Meal meal : categoryMeals) {
+                    if (meal.getName().equalsIgnoreCase(choice)) {
+                        found++;
+                        break;
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int indexedNameLookup() {
+        int found = 0;
+        int slot = 0;
+        for (String ignored : WeeklyPlan.DAYS) {
+            for (String category : WeeklyPlan.CATEGORIES) {
+                if (categoryIndex.find(category, choices[slot++]) != null) {
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public WeeklyPlan generatePlan() {
+        return generator.generate(new PlanRequest().setSeed(11).setNoRepeatDays(3));
+    }
+}
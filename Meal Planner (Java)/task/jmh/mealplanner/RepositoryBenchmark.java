@@ -0,0 +1,76 @@
+package mealplanner;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Write and read latency of the two MealRepository engines. The JDBC side runs on in-memory H2, which has
+// no network round trip or disk commit, so against a real PostgreSQL server the gap is wider.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class RepositoryBenchmark {
+    @Param({"jdbc", "log", "log-nofsync"})
+    public String storage;
+
+    private MealRepository repository;
+    private Path logFile;
+    private Map<String, Map<String, Meal>> plan;
+    private int planId;
+    private int next;
+
+    @Setup
+    public void setUp() throws SQLException, IOException {
+        if (storage.equals("jdbc")) {
+            repository = new JdbcMealRepository(BenchmarkDatabase.create());
+        } else {
+            logFile = Files.createTempFile("meals", ".log");
+            repository = new LogMealRepository(logFile, storage.equals("log"));
+        }
+        List<Meal> meals = SyntheticCatalog.meals(10_000, 42);
+        meals.replaceAll(meal -> meal.withId(repository.nextMealId()));
+        repository.insertMeals(meals);
+
+        CategoryIndex categoryIndex = new CategoryIndex();
+        meals.forEach(categoryIndex::add);
+        plan = new PlanGenerator(categoryIndex).generate(new PlanRequest().setSeed(7)).asMap();
+        planId = repository.planId("bench", "2024-W01");
+        repository.savePlan(planId, plan);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        repository.close();
+        if (logFile != null) {
+            Files.deleteIfExists(logFile);
+        }
+    }
+
+    @Benchmark
+    public void insertMeal() throws SQLException {
+        int id = repository.nextMealId();
+        Meal meal = Meal.create(id, MealCategory.DINNER, "inserted " + SyntheticCatalog.letters(next++),
+                new LinkedHashSet<>(List.of(SyntheticCatalog.ingredient(id % SyntheticCatalog.INGREDIENT_POOL))));
+        repository.insertMeals(List.of(meal));
+    }
+
+    @Benchmark
+    public void savePlan() throws SQLException {
+        repository.savePlan(planId, plan);
+    }
+
+    @Benchmark
+    public List<PlanStore.Slot> loadPlan() throws SQLException {
+        return repository.loadPlan(planId);
+    }
+}
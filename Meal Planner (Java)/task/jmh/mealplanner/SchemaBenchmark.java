@@ -0,0 +1,54 @@
+package mealplanner;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Catalog load and plan lookups on the base schema (1) vs the migrated one
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SchemaBenchmark {
+    @Param({"1", "3"})
+    public int schemaVersion;
+
+    @Param({"100000"})
+    public int catalogSize;
+
+    private DatabaseManager dbManager;
+    private MealCatalogLoader loader;
+    private List<Integer> plannedMealIds;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dbManager = BenchmarkDatabase.create(schemaVersion);
+        List<Meal> meals = BenchmarkDatabase.seed(dbManager, SyntheticCatalog.meals(catalogSize, 42));
+        loader = new MealCatalogLoader(dbManager);
+        // 21 meals spread over the catalog, what listPlan resolves on a cold cache
+        plannedMealIds = new ArrayList<>();
+        for (int i = 0; i < 21; i++) {
+            plannedMealIds.add(meals.get((int) ((long) i * meals.size() / 21)).getId());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        dbManager.close();
+    }
+
+    @Benchmark
+    public List<Meal> loadAll() throws SQLException {
+        return loader.loadAll();
+    }
+
+    @Benchmark
+    public List<Meal> loadPlannedMeals() throws SQLException {
+        return loader.loadByIds(plannedMealIds);
+    }
+}
@@ -0,0 +1,83 @@
+package mealplanner;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Closed-loop load test of the HTTP service on localhost, backed by the H2 stand-in.
+// Run with: gradle serverLoadTest -PloadArgs="<clients> <seconds>"
+public class ServerLoadTest {
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        try (DatabaseManager dbManager = BenchmarkDatabase.create(SchemaMigrator.latestVersion(), 16)) {
+            BenchmarkDatabase.seed(dbManager, SyntheticCatalog.meals(20_000, 42));
+            MealPlannerServer server = new MealPlannerServer(new MealManager(dbManager), 0);
+            server.start();
+            try {
+                run("http://localhost:" + server.getPort(), clients, seconds);
+                System.out.println("Server-side latencies:");
+                new TreeMap<>(server.getLatencies()).forEach((endpoint, histogram) ->
+                        System.out.printf("  %-45s %s%n", endpoint, histogram));
+            } finally {
+                server.stop();
+            }
+        }
+    }
+
+    private static void run(String baseUrl, int clients, int seconds) throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+        AtomicLong errors = new AtomicLong();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        String week = PlanSession.weekOf(java.time.LocalDate.now());
+
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            String user = "loaduser" + SyntheticCatalog.letters(c);
+            workers.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    String category = WeeklyPlan.CATEGORIES[random.nextInt(WeeklyPlan.CATEGORIES.length)];
+                    String ingredient = SyntheticCatalog.ingredient(random.nextInt(20)).replace(' ', '+');
+                    call(client, latencies, errors, "GET /meals", HttpRequest.newBuilder(URI.create(baseUrl + "/meals?category=" + category)).GET());
+                    call(client, latencies, errors, "GET /meals/search", HttpRequest.newBuilder(URI.create(baseUrl + "/meals/search?q=" + ingredient)).GET());
+                    call(client, latencies, errors, "POST /plans", HttpRequest.newBuilder(URI.create(baseUrl + "/plans/" + user + "/" + week))
+                            .POST(HttpRequest.BodyPublishers.ofString("{\"noRepeatDays\": 3, \"seed\": " + random.nextInt() + "}")));
+                    call(client, latencies, errors, "GET /plans/shopping-list", HttpRequest.newBuilder(URI.create(baseUrl + "/plans/" + user + "/" + week + "/shopping-list")).GET());
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        executor.shutdown();
+
+        long requests = latencies.values().stream().mapToLong(LatencyHistogram::getCount).sum();
+        System.out.printf("%d clients, %d s: %d requests (%.0f req/s), %d errors%n",
+                clients, seconds, requests, requests / (double) seconds, errors.get());
+        System.out.println("Client-side latencies:");
+        new TreeMap<>(latencies).forEach((endpoint, histogram) -> System.out.printf("  %-45s %s%n", endpoint, histogram));
+    }
+
+    private static void call(HttpClient client, Map<String, LatencyHistogram> latencies, AtomicLong errors,
+                             String endpoint, HttpRequest.Builder request) throws Exception {
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        latencies.computeIfAbsent(endpoint, k -> new LatencyHistogram()).recordNanos(System.nanoTime() - start);
+        if (response.statusCode() >= 400) {
+            errors.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package mealplanner;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ShoppingListBenchmark {
+    private WeeklyPlan plan;
+
+    @Setup
+    public void setUp() {
+        CategoryIndex categoryIndex = new CategoryIndex();
+        for (Meal meal : SyntheticCatalog.meals(10_000, 42)) {
+            categoryIndex.add(meal);
+        }
+        plan = new PlanGenerator(categoryIndex).generate(new PlanRequest().setSeed(7));
+    }
+
+    // The tally behind saveShoppingList
+    @Benchmark
+    public ShoppingList aggregate() {
+        return ShoppingList.aggregate(plan.asMap());
+    }
+}
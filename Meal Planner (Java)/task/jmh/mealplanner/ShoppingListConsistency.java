@@ -0,0 +1,76 @@
+package mealplanner;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+// Random single-slot swaps through PlanSession.replaceSlot, checking the delta-maintained shopping list
+// against a full recount after every swap and timing both.
+// Run with: gradle shoppingListConsistency -PswapCount=20000
+public class ShoppingListConsistency {
+    private static final double TOLERANCE = 1e-6;
+
+    public static void main(String[] args) throws SQLException {
+        int swaps = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        try (DatabaseManager dbManager = BenchmarkDatabase.create()) {
+            BenchmarkDatabase.seed(dbManager, SyntheticCatalog.meals(5_000, 42));
+            run(dbManager, swaps);
+        }
+    }
+
+    private static void run(DatabaseManager dbManager, int swaps) throws SQLException {
+        // Write-behind keeps the database off the timed path, swaps are coalesced in the background
+        try (MealManager mealManager = new MealManager(dbManager, true, null)) {
+            PlanSession session = mealManager.session("consistency", "2024-W01");
+            session.save(mealManager.generatePlan(new PlanRequest().setSeed(1)));
+
+            Random random = new Random(7);
+            long deltaNanos = 0;
+            long recountNanos = 0;
+            for (int i = 0; i < swaps; i++) {
+                String day = WeeklyPlan.DAYS[random.nextInt(WeeklyPlan.DAYS.length)];
+                String category = WeeklyPlan.CATEGORIES[random.nextInt(WeeklyPlan.CATEGORIES.length)];
+                List<Meal> candidates = new ArrayList<>(mealManager.getMealsByCategory(category));
+                session.replaceSlot(day, category, candidates.get(random.nextInt(candidates.size())));
+
+                long start = System.nanoTime();
+                ShoppingList live = session.shoppingList();
+                deltaNanos += System.nanoTime() - start;
+                start = System.nanoTime();
+                ShoppingList recount = ShoppingList.aggregate(session.getPlan().asMap());
+                recountNanos += System.nanoTime() - start;
+
+                String difference = difference(live, recount);
+                if (difference != null) {
+                    throw new IllegalStateException("Swap " + i + ": " + difference);
+                }
+            }
+            System.out.printf("%d swaps consistent; live list %.1f us, full recount %.1f us per read%n",
+                    swaps, deltaNanos / 1_000.0 / swaps, recountNanos / 1_000.0 / swaps);
+        }
+    }
+
+    // First ingredient/unit where the lists disagree beyond rounding, null when they match
+    static String difference(ShoppingList live, ShoppingList recount) {
+        Map<String, TreeMap<String, Double>> expected = recount.getItems();
+        Map<String, TreeMap<String, Double>> actual = live.getItems();
+        if (!expected.keySet().equals(actual.keySet())) {
+            return "ingredients " + actual.keySet() + " != " + expected.keySet();
+        }
+        for (Map.Entry<String, TreeMap<String, Double>> item : expected.entrySet()) {
+            TreeMap<String, Double> units = actual.get(item.getKey());
+            if (!units.keySet().equals(item.getValue().keySet())) {
+                return item.getKey() + " units " + units.keySet() + " != " + item.getValue().keySet();
+            }
+            for (Map.Entry<String, Double> unit : item.getValue().entrySet()) {
+                if (Math.abs(units.get(unit.getKey()) - unit.getValue()) > TOLERANCE) {
+                    return item.getKey() + " " + units.get(unit.getKey()) + " != " + unit.getValue();
+                }
+            }
+        }
+        return null;
+    }
+}
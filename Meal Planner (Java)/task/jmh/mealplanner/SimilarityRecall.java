@@ -0,0 +1,81 @@
+package mealplanner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+// Recall and latency of SimilarityIndex against an exact Jaccard scan of the whole catalog.
+// Recall counts the returned meals at least as similar as the true k-th neighbour, so ties do not matter.
+// Run with: gradle similarityRecall -PsimilarityMeals=1000000
+public class SimilarityRecall {
+    private static final int QUERIES = 200;
+    private static final int K = 10;
+    private static final int[][] BANDS_AND_ROWS = {{12, 2}, {16, 3}, {SimilarityIndex.DEFAULT_BANDS, SimilarityIndex.DEFAULT_ROWS}, {32, 4}};
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.printf("meals: %d, queries: %d, k: %d%n", count, QUERIES, K);
+        run("recipe families of 20", SyntheticCatalog.variants(count, 20, 42));
+        run("uniform random sets", SyntheticCatalog.meals(count, 42));
+    }
+
+    private static void run(String label, List<Meal> meals) {
+        Random random = new Random(7);
+        List<Meal> queries = new ArrayList<>();
+        for (int i = 0; i < QUERIES; i++) {
+            queries.add(meals.get(random.nextInt(meals.size())));
+        }
+
+        LatencyHistogram scanLatency = new LatencyHistogram();
+        double[] kthSimilarity = new double[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            long start = System.nanoTime();
+            kthSimilarity[i] = kthBest(meals, queries.get(i));
+            scanLatency.recordNanos(System.nanoTime() - start);
+        }
+        System.out.printf("%n%s%nexact scan: %s%n", label, scanLatency);
+
+        for (int[] config : BANDS_AND_ROWS) {
+            long start = System.nanoTime();
+            SimilarityIndex index = new SimilarityIndex(config[0], config[1]);
+            index.addAll(meals);
+            long buildMillis = (System.nanoTime() - start) / 1_000_000;
+
+            // Warm up before timing
+            for (int round = 0; round < 10; round++) {
+                for (Meal query : queries) {
+                    index.similar(query, K, null);
+                }
+            }
+            LatencyHistogram latency = new LatencyHistogram();
+            double recall = 0;
+            for (int i = 0; i < QUERIES; i++) {
+                long queryStart = System.nanoTime();
+                List<SimilarityIndex.Match> matches = index.similar(queries.get(i), K, null);
+                latency.recordNanos(System.nanoTime() - queryStart);
+                int hits = 0;
+                for (SimilarityIndex.Match match : matches) {
+                    hits += match.getSimilarity() >= kthSimilarity[i] - 1e-9 ? 1 : 0;
+                }
+                recall += (double) hits / K;
+            }
+            System.out.printf("%2d bands x %d rows: build %,d ms, recall@%d %.3f, %s%n",
+                    config[0], config[1], buildMillis, K, recall / QUERIES, latency);
+        }
+    }
+
+    // Similarity of the k-th most similar other meal
+    private static double kthBest(List<Meal> meals, Meal query) {
+        PriorityQueue<Double> best = new PriorityQueue<>();
+        for (Meal meal : meals) {
+            if (meal.getId() != query.getId()) {
+                best.offer(SimilarityIndex.jaccard(query, meal));
+                if (best.size() > K) {
+                    best.poll();
+                }
+            }
+        }
+        return best.peek();
+    }
+}
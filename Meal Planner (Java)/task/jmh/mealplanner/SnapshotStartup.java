@@ -0,0 +1,47 @@
+package mealplanner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+// Catalog startup time from the database (cold) vs from a current snapshot file (warm).
+// Run with: gradle snapshotStartup -PsnapshotMeals=200000
+public class SnapshotStartup {
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws SQLException, IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        Path snapshot = Files.createTempFile("catalog", ".snapshot");
+        Files.delete(snapshot);
+
+        try (DatabaseManager dbManager = BenchmarkDatabase.create()) {
+            BenchmarkDatabase.seed(dbManager, SyntheticCatalog.meals(count, 42));
+            for (int round = 1; round <= ROUNDS; round++) {
+                long cold = time(dbManager, null);
+                Files.deleteIfExists(snapshot);
+                long coldWithWrite = time(dbManager, snapshot);
+                long warm = time(dbManager, snapshot);
+                System.out.printf("round %d: database %d ms, database + snapshot write %d ms, snapshot %d ms (%,d bytes)%n",
+                        round, cold, coldWithWrite, warm, Files.size(snapshot));
+            }
+
+            // One more meal makes the stamp differ, so the next start falls back to the database
+            Meal added = Meal.create("lunch", "stale probe", new LinkedHashSet<>(List.of(SyntheticCatalog.ingredient(0))));
+            BenchmarkDatabase.seed(dbManager, List.of(added));
+            System.out.printf("stale snapshot: %d ms%n", time(dbManager, snapshot));
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    private static long time(DatabaseManager dbManager, Path snapshot) throws SQLException {
+        long start = System.nanoTime();
+        MealManager mealManager = new MealManager(dbManager, false, snapshot);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        mealManager.close();
+        return elapsedMillis;
+    }
+}
@@ -0,0 +1,77 @@
+package mealplanner;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+// Deterministic fake catalogs for the benchmarks, names and ingredients pass the app's letters-only rules
+public final class SyntheticCatalog {
+    public static final int INGREDIENT_POOL = 400;
+
+    private SyntheticCatalog() {
+    }
+
+    public static List<Meal> meals(int count, long seed) {
+        Random random = new Random(seed);
+        List<Meal> meals = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String category = WeeklyPlan.CATEGORIES[i % WeeklyPlan.CATEGORIES.length];
+            LinkedHashSet<String> ingredients = new LinkedHashSet<>();
+            int ingredientCount = 3 + random.nextInt(8);
+            while (ingredients.size() < ingredientCount) {
+                ingredients.add(ingredient(skewed(random)));
+            }
+            meals.add(Meal.create(category, "meal " + letters(i), ingredients).withId(i + 1));
+        }
+        return meals;
+    }
+
+    // Meals in families of variants of one base recipe, each variant swaps one to three ingredients of the base.
+    // Real catalogs look like this (omelette with ham, with cheese, ...), uniform random sets have no close neighbours.
+    public static List<Meal> variants(int count, int familySize, long seed) {
+        Random random = new Random(seed);
+        List<Meal> meals = new ArrayList<>(count);
+        List<String> base = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (i % familySize == 0) {
+                base.clear();
+                int ingredientCount = 4 + random.nextInt(7);
+                while (base.size() < ingredientCount) {
+                    String ingredient = ingredient(skewed(random));
+                    if (!base.contains(ingredient)) {
+                        base.add(ingredient);
+                    }
+                }
+            }
+            LinkedHashSet<String> ingredients = new LinkedHashSet<>(base);
+            for (int swaps = 1 + random.nextInt(3); swaps > 0; swaps--) {
+                ingredients.remove(base.get(random.nextInt(base.size())));
+                ingredients.add(ingredient(skewed(random)));
+            }
+            String category = WeeklyPlan.CATEGORIES[(i / familySize) % WeeklyPlan.CATEGORIES.length];
+            meals.add(Meal.create(category, "meal " + letters(i), ingredients).withId(i + 1));
+        }
+        return meals;
+    }
+
+    public static String ingredient(int index) {
+        return "ingredient " + letters(index);
+    }
+
+    // Popular ingredients are picked far more often, like salt and eggs in a real catalog
+    private static int skewed(Random random) {
+        double u = random.nextDouble();
+        return (int) (u * u * INGREDIENT_POOL);
+    }
+
+    // Base-26 encoding of a number with letters only
+    public static String letters(int value) {
+        StringBuilder sb = new StringBuilder();
+        do {
+            sb.append((char) ('a' + value % 26));
+            value /= 26;
+        } while (value > 0);
+        return sb.reverse().toString();
+    }
+}
@@ -0,0 +1,54 @@
+package mealplanner;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+public class BatchPlanner {
+    private final PlanGenerator generator;
+    private final int parallelism;
+
+    public BatchPlanner(PlanGenerator generator, int parallelism) {
+        this.generator = generator;
+        this.parallelism = parallelism;
+    }
+
+    // Generate one plan per request on a dedicated ForkJoinPool, results keep the request order
+    public Result planAll(List<PlanRequest> requests) throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long start = System.nanoTime();
+        try {
+            List<WeeklyPlan> plans = pool.submit(() -> requests.parallelStream()
+                    .map(generator::generate)
+                    .collect(Collectors.toList())).get();
+            return new Result(plans, System.nanoTime() - start);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch planning failed - " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public static class Result {
+        private final List<WeeklyPlan> plans;
+        private final long elapsedNanos;
+
+        Result(List<WeeklyPlan> plans, long elapsedNanos) {
+            this.plans = plans;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public List<WeeklyPlan> getPlans() {
+            return plans;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+
+        public double getPlansPerSecond() {
+            return elapsedNanos == 0 ? 0 : plans.size() * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+}
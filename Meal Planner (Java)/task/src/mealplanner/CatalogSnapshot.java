@@ -0,0 +1,164 @@
+package mealplanner;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+// Binary copy of the catalog for fast startup, valid while the store still has the same catalog version.
+// Layout: header (magic, format, stamp), ingredient dictionary, then meals as id, category, name and dictionary ids.
+public class CatalogSnapshot {
+    private static final int MAGIC = 0x4D504353; // "MPCS"
+    private static final int FORMAT_VERSION = 2;
+
+    private final Path path;
+    private long elapsedMillis;
+
+    public CatalogSnapshot(Path path) {
+        this.path = path;
+    }
+
+    // The stored meals, null when there is no snapshot or it was taken at another stamp
+    public List<Meal> read(Stamp expected) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 32 || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            Stamp stamp = new Stamp(buffer.getLong(), buffer.getLong());
+            if (!stamp.equals(expected)) {
+                return null;
+            }
+
+            String[] dictionary = new String[buffer.getInt()];
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = readString(buffer);
+            }
+
+            int mealCount = buffer.getInt();
+            List<Meal> meals = new ArrayList<>(mealCount);
+            for (int i = 0; i < mealCount; i++) {
+                int id = buffer.getInt();
+                MealCategory category = MealCategory.ofCode(buffer.get());
+                String name = readString(buffer);
+                LinkedHashSet<String> ingredients = new LinkedHashSet<>();
+                for (int j = buffer.getShort() & 0xFFFF; j > 0; j--) {
+                    ingredients.add(dictionary[buffer.getInt()]);
+                }
+                meals.add(Meal.create(id, category, name, ingredients));
+            }
+            return meals;
+        } catch (RuntimeException e) {
+            // A truncated or corrupt file is treated like a stale one
+            System.err.println("Ignoring unreadable catalog snapshot " + path + ": " + e);
+            return null;
+        } finally {
+            elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        }
+    }
+
+    // Write the meals under the stamp they were loaded at, replacing the old file atomically
+    public void write(Stamp stamp, Collection<Meal> meals) throws IOException {
+        IngredientDictionary dictionary = IngredientDictionary.shared();
+        int dictionarySize = dictionary.size();
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            buffer.putInt(MAGIC).putInt(FORMAT_VERSION)
+                    .putLong(stamp.version).putLong(stamp.mealCount);
+            buffer.putInt(dictionarySize);
+            for (int id = 0; id < dictionarySize; id++) {
+                buffer = putString(channel, buffer, dictionary.name(id));
+            }
+            buffer.putInt(meals.size());
+            for (Meal meal : meals) {
+                int count = meal.ingredientCount();
+                buffer = ensure(channel, buffer, 7 + 4 * count);
+                buffer.putInt(meal.getId()).put((byte) meal.getCategory().ordinal());
+                buffer = putString(channel, buffer, meal.getName());
+                buffer = ensure(channel, buffer, 2 + 4 * count);
+                buffer.putShort((short) count);
+                for (int i = 0; i < count; i++) {
+                    buffer.putInt(meal.ingredientId(i));
+                }
+            }
+            drain(channel, buffer);
+            channel.force(false);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer putString(FileChannel channel, ByteBuffer buffer, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer = ensure(channel, buffer, 2 + bytes.length);
+        return buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    // Make room for the next record, growing the buffer for records larger than it
+    private static ByteBuffer ensure(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+        drain(channel, buffer);
+        return bytes > buffer.capacity() ? ByteBuffer.allocate(bytes) : buffer;
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    // version grows with every meal stored; the meal count also catches meals deleted behind the application's back
+    public static class Stamp {
+        private final long version;
+        private final long mealCount;
+
+        public Stamp(long version, long mealCount) {
+            this.version = version;
+            this.mealCount = mealCount;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Stamp other && version == other.version && mealCount == other.mealCount;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(version) * 31 + Long.hashCode(mealCount);
+        }
+
+        @Override
+        public String toString() {
+            return "version=" + version + ", meals=" + mealCount;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package mealplanner;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Keeps the in-memory catalog of one instance current with meals other instances store in the same database.
+// Polls the catalog_changes feed after a watermark: every change id up to it has been applied or given up on.
+// Ids are handed out before commit, so a slow transaction leaves a gap that fills in later; a gap that stays
+// open for GAP_TIMEOUT_MS is most likely a rolled back insert and the watermark moves past it. Skipped gaps are
+// still looked up by id for SKIPPED_RECHECK_MS, and every RECONCILE_MS the stored meal ids are compared with the
+// catalog, so a meal whose change committed later than that is picked up all the same.
+public class CatalogSync implements AutoCloseable {
+    // Changes read per query, a poll keeps reading until it has caught up
+    private static final int BATCH_SIZE = 1_000;
+    private static final long GAP_TIMEOUT_MS = Long.getLong("mealplanner.sync.gapTimeoutMs", 10_000);
+    private static final long SKIPPED_RECHECK_MS = Long.getLong("mealplanner.sync.skippedRecheckMs", 600_000);
+    // 0 turns the reconciliation off
+    private static final long RECONCILE_MS = Long.getLong("mealplanner.sync.reconcileMs", 300_000);
+
+    private final MealRepository repository;
+    private final MealManager mealManager;
+    private final LatencyHistogram lag = Metrics.timer("catalogSync.lag");
+    private ScheduledExecutorService scheduler;
+
+    // Guarded by this: polls run one at a time
+    private long watermark;
+    // Highest change id read so far, new changes are read after it
+    private long highestSeen;
+    // Applied change ids above the watermark, waiting for the gaps below them
+    private final Set<Long> appliedAbove = new HashSet<>();
+    // Missing change ids below highestSeen -> when they were first noticed, in nanoTime
+    private final Map<Long, Long> gaps = new HashMap<>();
+    // Gaps the watermark moved past -> when, in nanoTime; looked up again on every poll
+    private final Map<Long, Long> skipped = new HashMap<>();
+    private long skippedGaps;
+    private long recoveredGaps;
+    private long reconciledMeals;
+    private long lastReconcileNanos = System.nanoTime();
+
+    private volatile long applied;
+    private volatile long pendingChanges;
+    private volatile long lastLagMillis;
+    private volatile long lastPollNanos = System.nanoTime();
+
+    // Start after the given change id, the catalog must already hold every meal of the changes up to it
+    public CatalogSync(MealRepository repository, MealManager mealManager, long afterChangeId) {
+        this.repository = repository;
+        this.mealManager = mealManager;
+        this.watermark = afterChangeId;
+        this.highestSeen = afterChangeId;
+    }
+
+    // Poll in the background every intervalMillis
+    public synchronized void start(long intervalMillis) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "catalog-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (SQLException e) {
+                // The next poll starts again from the watermark
+                System.err.println("Catalog sync failed: " + e.getMessage());
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Apply every change committed so far, returns the number of meals that were new to this instance
+    public synchronized int poll() throws SQLException {
+        return Metrics.time("catalogSync.poll", this::pollChanges);
+    }
+
+    private int pollChanges() throws SQLException {
+        long head = repository.latestChangeId();
+        int added = 0;
+        // Gaps are looked up again from the watermark, everything else is read only once
+        if (!gaps.isEmpty()) {
+            added += apply(repository.changesSince(watermark, BATCH_SIZE), watermark);
+        }
+        List<ChangeFeed.Change> changes;
+        do {
+            long after = highestSeen;
+            changes = repository.changesSince(after, BATCH_SIZE);
+            added += apply(changes, after);
+        } while (changes.size() == BATCH_SIZE);
+        advanceWatermark();
+        added += recheckSkipped();
+        if (RECONCILE_MS > 0 && System.nanoTime() - lastReconcileNanos >= TimeUnit.MILLISECONDS.toNanos(RECONCILE_MS)) {
+            added += reconcileMeals();
+        }
+
+        pendingChanges = Math.max(0, head - watermark - appliedAbove.size());
+        lastPollNanos = System.nanoTime();
+        return added;
+    }
+
+    private int apply(List<ChangeFeed.Change> changes, long after) throws SQLException {
+        long now = System.nanoTime();
+        long expected = after + 1;
+        long highest = highestSeen;
+        List<ChangeFeed.Change> fresh = new ArrayList<>();
+        for (ChangeFeed.Change change : changes) {
+            long changeId = change.getChangeId();
+            for (long missing = expected; missing < changeId; missing++) {
+                if (missing > watermark && !appliedAbove.contains(missing)) {
+                    gaps.putIfAbsent(missing, now);
+                }
+            }
+            expected = changeId + 1;
+            gaps.remove(changeId);
+            highest = Math.max(highest, changeId);
+            if (changeId > watermark && !appliedAbove.contains(changeId)) {
+                fresh.add(change);
+            }
+        }
+
+        int added = 0;
+        if (!fresh.isEmpty()) {
+            added = applyMeals(fresh);
+            for (ChangeFeed.Change change : fresh) {
+                appliedAbove.add(change.getChangeId());
+            }
+        }
+        // Only once the meals are in, so a failed load is read again by the next poll
+        highestSeen = highest;
+        return added;
+    }
+
+    private int applyMeals(List<ChangeFeed.Change> changes) throws SQLException {
+        List<Integer> mealIds = new ArrayList<>(changes.size());
+        for (ChangeFeed.Change change : changes) {
+            mealIds.add(change.getMealId());
+        }
+        // Meals this instance stored itself, or loaded after the change, are already in the catalog and skipped;
+        // an entry of the same name under another id lost the race for the name and is replaced
+        int added = mealManager.syncToCatalog(repository.loadMeals(mealIds));
+        applied += added;
+
+        long appliedAt = System.currentTimeMillis();
+        for (ChangeFeed.Change change : changes) {
+            long lagMillis = Math.max(0, appliedAt - change.getChangedAtMillis());
+            lag.recordNanos(TimeUnit.MILLISECONDS.toNanos(lagMillis));
+            lastLagMillis = lagMillis;
+        }
+        return added;
+    }
+
+    // Look skipped gaps up again, a transaction open longer than GAP_TIMEOUT_MS commits its change late
+    private int recheckSkipped() throws SQLException {
+        if (skipped.isEmpty()) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        skipped.values().removeIf(since -> now - since >= TimeUnit.MILLISECONDS.toNanos(SKIPPED_RECHECK_MS));
+        List<Long> changeIds = new ArrayList<>(Math.min(skipped.size(), BATCH_SIZE));
+        for (Long changeId : skipped.keySet()) {
+            if (changeIds.size() == BATCH_SIZE) {
+                break;
+            }
+            changeIds.add(changeId);
+        }
+        List<ChangeFeed.Change> late = repository.changes(changeIds);
+        if (late.isEmpty()) {
+            return 0;
+        }
+        int added = applyMeals(late);
+        for (ChangeFeed.Change change : late) {
+            skipped.remove(change.getChangeId());
+        }
+        recoveredGaps += late.size();
+        return added;
+    }
+
+    // Load every stored meal the catalog is missing, whatever way the feed lost it; returns how many were added
+    public synchronized int reconcile() throws SQLException {
+        return Metrics.time("catalogSync.reconcile", this::reconcileMeals);
+    }
+
+    private int reconcileMeals() throws SQLException {
+        lastReconcileNanos = System.nanoTime();
+        List<Integer> missing = mealManager.missingFromCatalog(repository.loadMealIds());
+        if (missing.isEmpty()) {
+            return 0;
+        }
+        int added = mealManager.syncToCatalog(repository.loadMeals(missing));
+        applied += added;
+        reconciledMeals += added;
+        return added;
+    }
+
+    // Move the watermark over applied changes and over gaps that have been open too long
+    private void advanceWatermark() {
+        long now = System.nanoTime();
+        while (watermark < highestSeen) {
+            long next = watermark + 1;
+            if (!appliedAbove.remove(next)) {
+                Long since = gaps.get(next);
+                if (since == null || now - since < TimeUnit.MILLISECONDS.toNanos(GAP_TIMEOUT_MS)) {
+                    break;
+                }
+                gaps.remove(next);
+                skipped.put(next, now);
+                skippedGaps++;
+            }
+            watermark = next;
+        }
+    }
+
+    // Changes committed but not applied yet as of the last poll, open gaps included
+    public long getPendingChanges() {
+        return pendingChanges;
+    }
+
+    // Time from a change's insert to this instance applying it, for the latest change applied;
+    // changed_at comes from the database clock, so skew between hosts shows up here
+    public long getLastLagMillis() {
+        return lastLagMillis;
+    }
+
+    public long getMillisSinceLastPoll() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastPollNanos);
+    }
+
+    // Meals other instances added that this one picked up
+    public long getAppliedMeals() {
+        return applied;
+    }
+
+    public synchronized long getWatermark() {
+        return watermark;
+    }
+
+    public synchronized long getSkippedGaps() {
+        return skippedGaps;
+    }
+
+    // Skipped gaps whose change committed after all and was applied
+    public synchronized long getRecoveredGaps() {
+        return recoveredGaps;
+    }
+
+    // Meals only the reconciliation found
+    public synchronized long getReconciledMeals() {
+        return reconciledMeals;
+    }
+
+    @Override
+    public String toString() {
+        return "pending=" + pendingChanges + " lagMs=" + lastLagMillis + " sincePollMs=" + getMillisSinceLastPoll()
+                + " applied=" + applied;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package mealplanner;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+public class CategoryIndex {
+    // One name-sorted map per category, names compare case-insensitively like the 'meals' keys.
+    // The EnumMap is filled up front and never changes shape, so concurrent readers need no locking.
+    private final Map<MealCategory, NavigableMap<String, Meal>> byCategory = new EnumMap<>(MealCategory.class);
+
+    public CategoryIndex() {
+        for (MealCategory category : MealCategory.values()) {
+            byCategory.put(category, new ConcurrentSkipListMap<>(String.CASE_INSENSITIVE_ORDER));
+        }
+    }
+
+    public void add(Meal meal) {
+        byCategory.get(meal.getCategory()).put(meal.getName(), meal);
+    }
+
+    // Remove exactly this meal, a meal of the same name added since stays
+    public void remove(Meal meal) {
+        byCategory.get(meal.getCategory()).remove(meal.getName(), meal);
+    }
+
+    // Meals of a category in alphabetical order, a live view so no copy or sort is needed
+    public Collection<Meal> list(MealCategory category) {
+        return byCategory.get(category).values();
+    }
+
+    public Collection<Meal> list(String category) {
+        MealCategory mealCategory = MealCategory.of(category);
+        return mealCategory == null ? Collections.emptyList() : list(mealCategory);
+    }
+
+    // Look up a meal of a category by name, ignoring case
+    public Meal find(MealCategory category, String name) {
+        return byCategory.get(category).get(name);
+    }
+
+    public Meal find(String category, String name) {
+        MealCategory mealCategory = MealCategory.of(category);
+        return mealCategory == null ? null : find(mealCategory, name);
+    }
+
+    public int size(String category) {
+        MealCategory mealCategory = MealCategory.of(category);
+        return mealCategory == null ? 0 : byCategory.get(mealCategory).size();
+    }
+}
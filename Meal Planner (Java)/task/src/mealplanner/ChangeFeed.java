@@ -0,0 +1,102 @@
+package mealplanner;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Reads catalog_changes, the feed of stored meals that instances sharing a database poll to stay in sync
+public class ChangeFeed {
+    // Schema version that added catalog_changes
+    static final int CHANGE_FEED_VERSION = 7;
+    private static final String LATEST_SQL = "SELECT COALESCE(MAX(change_id), 0) AS latest FROM catalog_changes";
+    private static final String SINCE_SQL = "SELECT change_id, meal_id, changed_at FROM catalog_changes " +
+            "WHERE change_id > ? ORDER BY change_id LIMIT ?";
+    private static final String BY_IDS_SQL = "SELECT change_id, meal_id, changed_at FROM catalog_changes " +
+            "WHERE change_id = ANY(?) ORDER BY change_id";
+
+    private final DatabaseManager dbManager;
+
+    // One stored meal; change ids grow with every insert but commit out of order, so the feed may have gaps
+    public static class Change {
+        private final long changeId;
+        private final int mealId;
+        private final long changedAtMillis;
+
+        public Change(long changeId, int mealId, long changedAtMillis) {
+            this.changeId = changeId;
+            this.mealId = mealId;
+            this.changedAtMillis = changedAtMillis;
+        }
+
+        public long getChangeId() {
+            return changeId;
+        }
+
+        public int getMealId() {
+            return mealId;
+        }
+
+        public long getChangedAtMillis() {
+            return changedAtMillis;
+        }
+    }
+
+    public ChangeFeed(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+    }
+
+    // Id of the newest committed change, 0 when there is none or before the change feed migration
+    public long latestChangeId() throws SQLException {
+        if (dbManager.getSchemaVersion() < CHANGE_FEED_VERSION) {
+            return 0;
+        }
+        try (Connection connection = dbManager.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(LATEST_SQL)) {
+            rs.next();
+            return rs.getLong("latest");
+        }
+    }
+
+    // Committed changes after the given id in id order, at most 'limit' of them
+    public List<Change> changesSince(long afterId, int limit) throws SQLException {
+        List<Change> changes = new ArrayList<>();
+        if (dbManager.getSchemaVersion() < CHANGE_FEED_VERSION) {
+            return changes;
+        }
+        try (Connection connection = dbManager.getConnection();
+             PreparedStatement ps = connection.prepareStatement(SINCE_SQL)) {
+            ps.setLong(1, afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                readChanges(rs, changes);
+            }
+        }
+        return changes;
+    }
+
+    // The committed changes among the given ids in id order
+    public List<Change> changes(Collection<Long> changeIds) throws SQLException {
+        List<Change> changes = new ArrayList<>();
+        if (changeIds.isEmpty() || dbManager.getSchemaVersion() < CHANGE_FEED_VERSION) {
+            return changes;
+        }
+        try (Connection connection = dbManager.getConnection();
+             PreparedStatement ps = connection.prepareStatement(BY_IDS_SQL)) {
+            ps.setArray(1, connection.createArrayOf("bigint", changeIds.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                readChanges(rs, changes);
+            }
+        }
+        return changes;
+    }
+
+    private void readChanges(ResultSet rs, List<Change> changes) throws SQLException {
+        while (rs.next()) {
+            Timestamp changedAt = rs.getTimestamp("changed_at");
+            changes.add(new Change(rs.getLong("change_id"), rs.getInt("meal_id"),
+                    changedAt == null ? 0 : changedAt.getTime()));
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package mealplanner;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ConnectionPool implements AutoCloseable {
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final boolean leakStacks;
+
+    private final BlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final Map<PooledConnection, Lease> leases = new ConcurrentHashMap<>();
+    // Null when leak detection is off
+    private final ScheduledExecutorService leakDetector;
+    private final AtomicInteger physicalCount = new AtomicInteger();
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+                          long acquireTimeoutMillis, long leakThresholdMillis, boolean leakStacks) throws SQLException {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.leakStacks = leakStacks;
+        this.permits = new Semaphore(maxSize, true);
+
+        for (int i = 0; i < minSize; i++) {
+            idle.offer(openPhysical());
+        }
+
+        if (leakThresholdMillis <= 0) {
+            leakDetector = null;
+            return;
+        }
+        leakDetector = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-leak-detector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(leakThresholdMillis / 2, 100);
+        leakDetector.scheduleAtFixedRate(this::detectLeaks, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // Borrow a connection, closing it returns it to the pool
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.incrementAndGet();
+                throw new SQLException("Timed out after " + acquireTimeoutMillis + " ms waiting for a connection (max pool size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            Connection physical = idle.pollFirst();
+            if (physical == null || physical.isClosed()) {
+                physical = openPhysical();
+            }
+            PooledConnection pooled = new PooledConnection(physical);
+            leases.put(pooled, new Lease(leakStacks && leakDetector != null));
+            return pooled.proxy;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private Connection openPhysical() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, user, password);
+        connection.setAutoCommit(true);
+        physicalCount.incrementAndGet();
+        return connection;
+    }
+
+    private void recordWait(long waitNanos) {
+        acquireCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    private void release(PooledConnection pooled) {
+        leases.remove(pooled);
+        Connection physical = pooled.physical;
+        try {
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (closed) {
+                closePhysical(physical);
+            } else {
+                idle.offerFirst(physical);
+            }
+        } catch (SQLException e) {
+            // A broken connection is dropped, the next borrower opens a fresh one
+            closePhysical(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void closePhysical(Connection physical) {
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        } finally {
+            physicalCount.decrementAndGet();
+        }
+    }
+
+    // Report connections held longer than the leak threshold, with the stack that borrowed them if it was kept
+    private void detectLeaks() {
+        long now = System.currentTimeMillis();
+        for (Lease lease : leases.values()) {
+            if (!lease.reported && now - lease.borrowedAt > leakThresholdMillis) {
+                lease.reported = true;
+                leakCount.incrementAndGet();
+                System.err.printf("Possible connection leak: held for %d ms by thread %s%n",
+                        now - lease.borrowedAt, lease.threadName);
+                if (lease.borrowedBy != null) {
+                    lease.borrowedBy.printStackTrace();
+                }
+            }
+        }
+    }
+
+    public int getActiveCount() {
+        return leases.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getPhysicalCount() {
+        return physicalCount.get();
+    }
+
+    public double getAverageWaitMillis() {
+        long count = acquireCount.get();
+        return count == 0 ? 0 : totalWaitNanos.get() / 1_000_000.0 / count;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    public long getLeakCount() {
+        return leakCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("active=%d idle=%d max=%d avgWait=%.2fms maxWait=%.2fms timeouts=%d leaks=%d",
+                getActiveCount(), getIdleCount(), maxSize, getAverageWaitMillis(), getMaxWaitMillis(),
+                getTimeoutCount(), getLeakCount());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        if (leakDetector != null) {
+            leakDetector.shutdownNow();
+        }
+        Connection physical;
+        while ((physical = idle.pollFirst()) != null) {
+            closePhysical(physical);
+        }
+    }
+
+    private static class Lease {
+        private final long borrowedAt = System.currentTimeMillis();
+        private final String threadName = Thread.currentThread().getName();
+        private final Exception borrowedBy;
+        private volatile boolean reported;
+
+        Lease(boolean captureStack) {
+            this.borrowedBy = captureStack ? new Exception("Connection borrowed here") : null;
+        }
+    }
+
+    // Proxy handler that hands the physical connection back instead of closing it
+    private class PooledConnection implements InvocationHandler {
+        private final Connection physical;
+        private final Connection proxy;
+        private boolean returned;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (this) {
+                        if (!returned) {
+                            returned = true;
+                            release(this);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + physical;
+                default:
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (result instanceof Statement statement && Statement.class.isAssignableFrom(method.getReturnType())) {
+                        String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+                        return InstrumentedStatement.wrap(method.getReturnType(), statement, this.proxy, sql);
+                    }
+                    return result;
+            }
+        }
+    }
+}
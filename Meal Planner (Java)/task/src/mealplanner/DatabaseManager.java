@@ -2,60 +2,79 @@
 package mealplanner;
 
 import java.sql.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class DatabaseManager {
-    private static final String DB_URL = "jdbc:postgresql:meals_db";
-    private static final String USER = "postgres";
-    private static final String PASS = "1111";
-    private final Connection connection;
-    private int nextMealId;
+public class DatabaseManager implements AutoCloseable {
+    // Connection settings, overridable with -Dmealplanner.db.url/user/password
+    private static final String DB_URL = System.getProperty("mealplanner.db.url", "jdbc:postgresql:meals_db");
+    private static final String USER = System.getProperty("mealplanner.db.user", "postgres");
+    private static final String PASS = System.getProperty("mealplanner.db.password", "1111");
+    // Pool settings, overridable with -Dmealplanner.pool.* system properties
+    private static final int MIN_POOL_SIZE = Integer.getInteger("mealplanner.pool.min", 2);
+    private static final int MAX_POOL_SIZE = Integer.getInteger("mealplanner.pool.max", 10);
+    private static final long ACQUIRE_TIMEOUT_MS = Long.getLong("mealplanner.pool.acquireTimeoutMs", 5_000);
+    // 0 turns leak detection off; borrowing stacks cost an exception per connection and are only kept in debug mode
+    private static final long LEAK_THRESHOLD_MS = Long.getLong("mealplanner.pool.leakThresholdMs", 30_000);
+    private static final boolean LEAK_STACKS = Boolean.getBoolean("mealplanner.pool.leakStacks");
+    // Schema version that added meal_id_blocks, and how many ids one reservation takes
+    private static final int MEAL_ID_BLOCKS_VERSION = 7;
+    private static final int MEAL_ID_BLOCK_SIZE = Integer.getInteger("mealplanner.mealIdBlockSize", 100);
+    private static final String RESERVE_IDS_SQL = "UPDATE meal_id_blocks SET next_id = next_id + ? WHERE block_key = 1";
+    private static final String RESERVED_END_SQL = "SELECT next_id FROM meal_id_blocks WHERE block_key = 1";
+
+    private final ConnectionPool pool;
+    private final AtomicInteger nextMealId = new AtomicInteger();
+    // The reserved block of ids not handed out yet, [blockNext, blockEnd); guarded by this
+    private int blockNext;
+    private int blockEnd;
+    private final int targetSchemaVersion;
+    private int schemaVersion;
 
     public DatabaseManager() throws SQLException {
-        connection = DriverManager.getConnection(DB_URL, USER, PASS);
-        connection.setAutoCommit(true);
-        initializeDatabase();
-        nextMealId = getMaxMealId() + 1;
+        this(DB_URL, USER, PASS, MIN_POOL_SIZE, MAX_POOL_SIZE);
     }
 
-    public Connection getConnection() {
-        return connection;
+    public DatabaseManager(String url, String user, String password, int minPoolSize, int maxPoolSize) throws SQLException {
+        this(url, user, password, minPoolSize, maxPoolSize, SchemaMigrator.latestVersion());
     }
 
-    public void initializeDatabase() throws SQLException {
-        try (Statement stmt = connection.createStatement()) {
-            //dropTables();
-            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS meals (" +
-                    "meal_id SERIAL PRIMARY KEY, " +
-                    "category VARCHAR(255), " +
-                    "meal VARCHAR(255))");
-
-            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS ingredients (" +
-                    "ingredient_id SERIAL PRIMARY KEY, " +
-                    "ingredient VARCHAR(255), " +
-                    "meal_id INT)");
-
-            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS meal_planner (" +
-                    "day VARCHAR(255), " +
-                    "meal_category VARCHAR(255), " +
-                    "meal_id INT, " +
-                    "FOREIGN KEY (meal_id) REFERENCES meals(meal_id))");
+    // Stop migrating at an older schema version, used to benchmark before/after a migration
+    public DatabaseManager(String url, String user, String password, int minPoolSize, int maxPoolSize,
+                           int targetSchemaVersion) throws SQLException {
+        this.targetSchemaVersion = targetSchemaVersion;
+        pool = new ConnectionPool(url, user, password, minPoolSize, maxPoolSize, ACQUIRE_TIMEOUT_MS, LEAK_THRESHOLD_MS,
+                LEAK_STACKS);
+        initializeDatabase();
+        nextMealId.set(getMaxMealId() + 1);
+    }
 
-            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS plan (" +
-                    "meal_option VARCHAR(255), " +
-                    "meal_category VARCHAR(255), " +
-                    "meal_id INT, " +
-                    "FOREIGN KEY (meal_id) REFERENCES meals(meal_id))");
+    // Borrow a pooled connection, callers must close it to return it to the pool
+    public Connection getConnection() throws SQLException {
+        return pool.getConnection();
+    }
 
+    public ConnectionPool getPool() {
+        return pool;
+    }
 
+    public void initializeDatabase() throws SQLException {
+        try (Connection connection = getConnection()) {
+            //dropTables();
+            schemaVersion = new SchemaMigrator().migrate(connection, targetSchemaVersion);
         } catch (SQLException e) {
             e.printStackTrace();
             throw new SQLException("An exception was thrown while trying to create tables - " + e.getMessage(), e);
         }
     }
 
+    public int getSchemaVersion() {
+        return schemaVersion;
+    }
+
     private int getMaxMealId() throws SQLException {
         String query = "SELECT COALESCE(MAX(meal_id), 0) AS max_meal_id FROM meals";
-        try (Statement statement = connection.createStatement();
+        try (Connection connection = getConnection();
+             Statement statement = connection.createStatement();
              ResultSet rs = statement.executeQuery(query)) {
             if (rs.next()) {
                 return rs.getInt("max_meal_id");
@@ -65,18 +84,64 @@ public class DatabaseManager {
     }
 
     public int getNextMealId() {
-        return nextMealId++;
+        if (schemaVersion < MEAL_ID_BLOCKS_VERSION) {
+            return nextMealId.getAndIncrement();
+        }
+        synchronized (this) {
+            if (blockNext == blockEnd) {
+                reserveMealIds();
+            }
+            return blockNext++;
+        }
+    }
+
+    // Take the next block of ids from the shared counter, the row lock serializes concurrent instances
+    private void reserveMealIds() {
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement update = connection.prepareStatement(RESERVE_IDS_SQL);
+                 PreparedStatement select = connection.prepareStatement(RESERVED_END_SQL)) {
+                update.setInt(1, MEAL_ID_BLOCK_SIZE);
+                update.executeUpdate();
+                try (ResultSet rs = select.executeQuery()) {
+                    rs.next();
+                    blockEnd = rs.getInt("next_id");
+                }
+                connection.commit();
+                blockNext = blockEnd - MEAL_ID_BLOCK_SIZE;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not reserve meal ids - " + e.getMessage(), e);
+        }
     }
     // Method to drop tables
 public void dropTables() throws SQLException {
-    try (Statement stmt = connection.createStatement()) {
+    try (Connection connection = getConnection();
+         Statement stmt = connection.createStatement()) {
+        stmt.executeUpdate("DROP TABLE IF EXISTS catalog_changes CASCADE");
+        stmt.executeUpdate("DROP TABLE IF EXISTS meal_id_blocks CASCADE");
         stmt.executeUpdate("DROP TABLE IF EXISTS meal_planner CASCADE");
+        stmt.executeUpdate("DROP TABLE IF EXISTS plan_history CASCADE");
+        stmt.executeUpdate("DROP TABLE IF EXISTS plans CASCADE");
         stmt.executeUpdate("DROP TABLE IF EXISTS ingredients CASCADE");
         stmt.executeUpdate("DROP TABLE IF EXISTS meals CASCADE");
         stmt.executeUpdate("DROP TABLE IF EXISTS plan CASCADE");
+        stmt.executeUpdate("DROP TABLE IF EXISTS ingredient_nutrition CASCADE");
+        stmt.executeUpdate("DROP TABLE IF EXISTS ingredient_names CASCADE");
+        stmt.executeUpdate("DROP TABLE IF EXISTS schema_version CASCADE");
     } catch (SQLException e) {
         e.printStackTrace();
         throw new SQLException("An exception was thrown while trying to drop tables - " + e.getMessage(), e);
     }
 }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
 }
\ No newline at end of file
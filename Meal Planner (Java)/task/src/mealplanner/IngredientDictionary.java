@@ -0,0 +1,53 @@
+package mealplanner;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Shared ingredient names with dense integer ids, so meals store ids instead of their own strings
+public final class IngredientDictionary {
+    private static final IngredientDictionary SHARED = new IngredientDictionary();
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[256];
+    private int size;
+
+    public static IngredientDictionary shared() {
+        return SHARED;
+    }
+
+    // Id of an ingredient, assigned on first use
+    public int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+            }
+            names[size] = name;
+            // Publish the name before the id so readers never see an id without its name
+            ids.put(name, size);
+            return size++;
+        }
+    }
+
+    // Id of a known ingredient, -1 when it has never been interned
+    public int idOf(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
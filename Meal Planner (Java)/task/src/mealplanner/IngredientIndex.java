@@ -0,0 +1,132 @@
+package mealplanner;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Inverted index from ingredient id to the bitmap of meal ids that use it
+public class IngredientIndex {
+    private final Map<Integer, BitSet> postings = new HashMap<>();
+    private final Map<Integer, Meal> mealsById = new HashMap<>();
+    private final BitSet allMeals = new BitSet();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void add(Meal meal) {
+        lock.writeLock().lock();
+        try {
+            mealsById.put(meal.getId(), meal);
+            allMeals.set(meal.getId());
+            for (int i = 0; i < meal.ingredientCount(); i++) {
+                postings.computeIfAbsent(meal.ingredientId(i), k -> new BitSet()).set(meal.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Remove exactly this meal, its id stays taken when another meal now has it
+    public void remove(Meal meal) {
+        lock.writeLock().lock();
+        try {
+            if (!mealsById.remove(meal.getId(), meal)) {
+                return;
+            }
+            allMeals.clear(meal.getId());
+            for (int i = 0; i < meal.ingredientCount(); i++) {
+                BitSet posting = postings.get(meal.ingredientId(i));
+                if (posting != null) {
+                    posting.clear(meal.getId());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Meals matching the query, best pantry coverage first, at most 'limit' results
+    public List<Match> search(MealQuery query, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        IngredientDictionary dictionary = IngredientDictionary.shared();
+        Set<Integer> pantry = new HashSet<>();
+        Comparator<Match> ranking = Comparator.comparingDouble(Match::getCoverage).reversed()
+                .thenComparing(match -> match.getMeal().getName());
+        // Bounded heap holding the best 'limit' matches, its head is the worst of them
+        PriorityQueue<Match> best = new PriorityQueue<>(ranking.reversed());
+
+        lock.readLock().lock();
+        try {
+            BitSet result = (BitSet) allMeals.clone();
+            for (String ingredient : query.getAllOf()) {
+                int id = dictionary.idOf(ingredient);
+                pantry.add(id);
+                result.and(posting(id));
+            }
+            if (!query.getAnyOf().isEmpty()) {
+                BitSet union = new BitSet();
+                for (String ingredient : query.getAnyOf()) {
+                    int id = dictionary.idOf(ingredient);
+                    pantry.add(id);
+                    union.or(posting(id));
+                }
+                result.and(union);
+            }
+            for (String ingredient : query.getNoneOf()) {
+                result.andNot(posting(dictionary.idOf(ingredient)));
+            }
+
+            for (int mealId = result.nextSetBit(0); mealId >= 0; mealId = result.nextSetBit(mealId + 1)) {
+                Meal meal = mealsById.get(mealId);
+                best.offer(new Match(meal, coverage(meal, pantry)));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Match> matches = new ArrayList<>(best);
+        matches.sort(ranking);
+        return matches;
+    }
+
+    private BitSet posting(int ingredientId) {
+        BitSet posting = postings.get(ingredientId);
+        return posting == null ? new BitSet() : posting;
+    }
+
+    // Share of the meal's ingredients the pantry already covers
+    private static double coverage(Meal meal, Set<Integer> pantry) {
+        int count = meal.ingredientCount();
+        if (count == 0) {
+            return 1.0;
+        }
+        int covered = 0;
+        for (int i = 0; i < count; i++) {
+            if (pantry.contains(meal.ingredientId(i))) {
+                covered++;
+            }
+        }
+        return (double) covered / count;
+    }
+
+    public static class Match {
+        private final Meal meal;
+        private final double coverage;
+
+        Match(Meal meal, double coverage) {
+            this.meal = meal;
+            this.coverage = coverage;
+        }
+
+        public Meal getMeal() {
+            return meal;
+        }
+
+        public double getCoverage() {
+            return coverage;
+        }
+    }
+}
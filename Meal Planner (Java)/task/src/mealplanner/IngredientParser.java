@@ -0,0 +1,89 @@
+package mealplanner;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+public final class IngredientParser {
+    private IngredientParser() {
+    }
+
+    // Same check as "^[a-zA-Z ]+$" without a regex: non-empty, ASCII letters and spaces only
+    public static boolean isLettersOrSpaces(String input) {
+        int length = input.length();
+        if (length == 0) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == ' ')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Split on commas followed by optional whitespace and validate each token in the same pass.
+    // Tokens match input.split(",\\s*"), including dropping trailing empty tokens.
+    public static Result parse(String input) {
+        Result result = new Result();
+        int length = input.length();
+        int pendingEmpty = 0;
+        int start = 0;
+
+        while (start <= length) {
+            int end = input.indexOf(',', start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end == start) {
+                // Empty tokens only count if a non-empty one follows, like String.split
+                pendingEmpty++;
+            } else {
+                for (; pendingEmpty > 0; pendingEmpty--) {
+                    result.errors.add("");
+                }
+                String token = input.substring(start, end);
+                if (isLettersOrSpaces(token)) {
+                    result.ingredients.add(token);
+                } else {
+                    result.errors.add(token);
+                }
+            }
+            if (end == length) {
+                break;
+            }
+            start = end + 1;
+            while (start < length && isRegexWhitespace(input.charAt(start))) {
+                start++;
+            }
+        }
+        if (length == 0) {
+            result.errors.add("");
+        }
+        return result;
+    }
+
+    // The \s class of java.util.regex
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    public static class Result {
+        private final LinkedHashSet<String> ingredients = new LinkedHashSet<>();
+        private final List<String> errors = new ArrayList<>();
+
+        public LinkedHashSet<String> getIngredients() {
+            return ingredients;
+        }
+
+        // Tokens that are not letters and spaces only
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        public boolean isValid() {
+            return errors.isEmpty();
+        }
+    }
+}
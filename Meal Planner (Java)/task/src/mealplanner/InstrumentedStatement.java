@@ -0,0 +1,72 @@
+package mealplanner;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+
+// Times every execute* call of a statement and reports it to Metrics and JFR
+class InstrumentedStatement implements InvocationHandler {
+    private final Statement target;
+    private final Connection connection;
+    // Key and timer of a prepared statement, null for plain statements whose SQL comes with each execute
+    private final String preparedKey;
+    private final LatencyHistogram preparedTimer;
+
+    private InstrumentedStatement(Statement target, Connection connection, String preparedSql) {
+        this.target = target;
+        this.connection = connection;
+        this.preparedKey = preparedSql != null ? Metrics.sqlKey(preparedSql) : null;
+        this.preparedTimer = preparedKey != null ? Metrics.sqlTimer(preparedKey) : null;
+    }
+
+    // Wrap a statement as the given interface (Statement, PreparedStatement or CallableStatement)
+    static Object wrap(Class<?> type, Statement target, Connection connection, String preparedSql) {
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new InstrumentedStatement(target, connection, preparedSql));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getName().equals("getConnection")) {
+            // Hand out the pooled connection, never the physical one behind it
+            return connection;
+        }
+        if (!method.getName().startsWith("execute")) {
+            return call(method, args);
+        }
+
+        String sqlKey = preparedKey;
+        LatencyHistogram sqlTimer = preparedTimer;
+        if (sqlKey == null) {
+            sqlKey = Metrics.sqlKey(args != null && args.length > 0 && args[0] instanceof String text ? text : "batch");
+            sqlTimer = Metrics.sqlTimer(sqlKey);
+        }
+        Metrics.SqlEvent event = new Metrics.SqlEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            return call(method, args);
+        } catch (Throwable e) {
+            Metrics.increment("sql.errors");
+            throw e;
+        } finally {
+            Metrics.recordQuery(sqlTimer, System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.sql = sqlKey;
+                event.commit();
+            }
+        }
+    }
+
+    private Object call(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package mealplanner;
+
+import java.sql.*;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// MealRepository on PostgreSQL (or any database SchemaMigrator supports) through the pooled DatabaseManager
+public class JdbcMealRepository implements MealRepository {
+    // Every stored meal gets a new change id in its transaction, so the highest one versions the catalog
+    private static final String STAMP_SQL = "SELECT (SELECT COALESCE(MAX(change_id), 0) FROM catalog_changes) AS version, " +
+            "(SELECT COUNT(*) FROM meals) AS meal_count";
+
+    private final DatabaseManager dbManager;
+    private final MealCatalogLoader loader;
+    private final MealBatchWriter mealWriter;
+    private final PlanStore planStore;
+    private final NutritionStore nutritionStore;
+    private final ChangeFeed changeFeed;
+    private volatile MealCatalogLoader.LoadStats lastLoadStats;
+
+    public JdbcMealRepository(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+        this.loader = new MealCatalogLoader(dbManager);
+        this.mealWriter = new MealBatchWriter(dbManager);
+        this.planStore = new PlanStore(dbManager);
+        this.nutritionStore = new NutritionStore(dbManager);
+        this.changeFeed = new ChangeFeed(dbManager);
+    }
+
+    public DatabaseManager getDatabaseManager() {
+        return dbManager;
+    }
+
+    @Override
+    public int nextMealId() {
+        return dbManager.getNextMealId();
+    }
+
+    @Override
+    public List<Meal> loadAllMeals() throws SQLException {
+        // A loader of its own, the shared one serves cache misses concurrently
+        MealCatalogLoader catalogLoader = new MealCatalogLoader(dbManager);
+        List<Meal> meals = catalogLoader.loadAll();
+        lastLoadStats = new MealCatalogLoader.LoadStats(catalogLoader.getRowsRead(), catalogLoader.getElapsedMillis());
+        return meals;
+    }
+
+    @Override
+    public MealCatalogLoader.LoadStats lastLoadStats() {
+        return lastLoadStats;
+    }
+
+    @Override
+    public List<Meal> loadMeals(Collection<Integer> mealIds) throws SQLException {
+        return loader.loadByIds(mealIds);
+    }
+
+    @Override
+    public List<Integer> loadMealIds() throws SQLException {
+        return loader.loadIds();
+    }
+
+    @Override
+    public void insertMeals(List<Meal> meals) throws SQLException {
+        write(meals, Map.of(), Map.of());
+    }
+
+    @Override
+    public CatalogSnapshot.Stamp catalogStamp() throws SQLException {
+        if (dbManager.getSchemaVersion() < ChangeFeed.CHANGE_FEED_VERSION) {
+            return null;
+        }
+        try (Connection connection = dbManager.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(STAMP_SQL)) {
+            rs.next();
+            return new CatalogSnapshot.Stamp(rs.getLong("version"), rs.getLong("meal_count"));
+        }
+    }
+
+    @Override
+    public Map<String, Nutrition> loadNutrition() throws SQLException {
+        return nutritionStore.load();
+    }
+
+    @Override
+    public void saveNutrition(String ingredient, Nutrition nutrition) throws SQLException {
+        nutritionStore.save(ingredient, nutrition);
+    }
+
+    @Override
+    public int planId(String user, String week) throws SQLException {
+        return planStore.planId(user, week);
+    }
+
+    @Override
+    public int findPlanId(String user, String week) throws SQLException {
+        return planStore.findPlanId(user, week);
+    }
+
+    @Override
+    public List<PlanStore.Slot> loadPlan(int planId) throws SQLException {
+        return planStore.load(planId);
+    }
+
+    @Override
+    public void savePlan(int planId, Map<String, Map<String, Meal>> weeklyPlan) throws SQLException {
+        planStore.save(planId, weeklyPlan);
+    }
+
+    @Override
+    public void saveSlot(int planId, String day, String category, int mealId) throws SQLException {
+        planStore.saveSlot(planId, day, category, mealId);
+    }
+
+    @Override
+    public Map<Integer, Integer> loadPlanCounts() throws SQLException {
+        return planStore.loadPlanCounts();
+    }
+
+    @Override
+    public long latestChangeId() throws SQLException {
+        return changeFeed.latestChangeId();
+    }
+
+    @Override
+    public List<ChangeFeed.Change> changesSince(long afterId, int limit) throws SQLException {
+        return changeFeed.changesSince(afterId, limit);
+    }
+
+    @Override
+    public List<ChangeFeed.Change> changes(Collection<Long> changeIds) throws SQLException {
+        return changeFeed.changes(changeIds);
+    }
+
+    // One transaction for the whole batch
+    @Override
+    public void write(List<Meal> meals, Map<Integer, Map<String, Map<String, Meal>>> plans, Map<Integer, List<PlanStore.Slot>> slots)
+            throws SQLException {
+        try (Connection connection = dbManager.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                if (!meals.isEmpty()) {
+                    mealWriter.insert(connection, meals);
+                }
+                for (Map.Entry<Integer, Map<String, Map<String, Meal>>> plan : plans.entrySet()) {
+                    planStore.save(connection, plan.getKey(), plan.getValue());
+                }
+                for (Map.Entry<Integer, List<PlanStore.Slot>> planSlots : slots.entrySet()) {
+                    for (PlanStore.Slot slot : planSlots.getValue()) {
+                        planStore.saveSlot(connection, planSlots.getKey(), slot.getDay(), slot.getCategory(), slot.getMealId());
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        dbManager.close();
+    }
+}
@@ -0,0 +1,556 @@
+package mealplanner;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.zip.CRC32;
+
+// Embedded MealRepository: every write is appended to one log file, all state is served from memory.
+// Each frame is [length][crc32][records] and holds one write, so a write is replayed whole or not at all.
+// Opening replays the log, cuts off a torn tail and compacts the file when most of it is overwritten history.
+public class LogMealRepository implements MealRepository {
+    private static final byte MEAL = 1;
+    private static final byte PLAN_ID = 2;
+    private static final byte PLAN = 3;
+    private static final byte SLOT = 4;
+    private static final byte NUTRITION = 5;
+    private static final int FRAME_HEADER = 8;
+    // Compact when the log holds this many records more than twice the live ones
+    private static final int COMPACT_SLACK = 1_000;
+    // Meals per frame when compacting
+    private static final int MEALS_PER_FRAME = 1_000;
+    // Longest string writeUTF takes, in bytes of modified UTF-8
+    private static final int MAX_STRING_BYTES = 65_535;
+
+    private final Path path;
+    private final boolean fsync;
+    private FileChannel channel;
+
+    private final Map<Integer, Meal> meals = new TreeMap<>();
+    private final Set<String> mealNames = new HashSet<>();
+    private final Map<String, Integer> planIds = new HashMap<>();
+    private final Map<Integer, String[]> planOwners = new HashMap<>();
+    // planId -> day -> category -> meal id, sorted like the JDBC query
+    private final Map<Integer, TreeMap<String, TreeMap<String, Integer>>> plans = new HashMap<>();
+    private final Map<String, Nutrition> nutrition = new HashMap<>();
+    private int nextMealId = 1;
+    private int nextPlanId = 1;
+    private long recordCount;
+    private MealCatalogLoader.LoadStats lastLoadStats;
+
+    // fsync forces every write to disk before it returns, without it a crash can lose the latest writes
+    public LogMealRepository(Path path, boolean fsync) throws SQLException {
+        this.path = path;
+        this.fsync = fsync;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            replay();
+            if (recordCount > 2 * liveRecordCount() + COMPACT_SLACK) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not open meal log " + path + " - " + e.getMessage(), e);
+        }
+    }
+
+    private void replay() throws IOException {
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+        long position = 0;
+        while (position < size) {
+            header.clear();
+            if (size - position < FRAME_HEADER || channel.read(header, position) < FRAME_HEADER) {
+                break;
+            }
+            header.flip();
+            int length = header.getInt();
+            int crc = header.getInt();
+            if (length <= 0 || length > size - position - FRAME_HEADER) {
+                break;
+            }
+            ByteBuffer frame = ByteBuffer.allocate(length);
+            while (frame.hasRemaining()) {
+                if (channel.read(frame, position + FRAME_HEADER + frame.position()) < 0) {
+                    break;
+                }
+            }
+            if (frame.hasRemaining() || crc(frame.array()) != crc) {
+                break;
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame.array()));
+            while (in.available() > 0) {
+                applyRecord(in);
+            }
+            position += FRAME_HEADER + length;
+        }
+        if (position < size) {
+            // A write that was cut short by a crash, it was never acknowledged
+            System.err.printf("Meal log %s: dropping %d bytes of incomplete writes%n", path, size - position);
+            channel.truncate(position);
+        }
+        channel.position(position);
+    }
+
+    private void applyRecord(DataInputStream in) throws IOException {
+        recordCount++;
+        byte type = in.readByte();
+        switch (type) {
+            case MEAL -> {
+                int id = in.readInt();
+                String category = in.readUTF();
+                String name = in.readUTF();
+                LinkedHashSet<String> ingredients = new LinkedHashSet<>();
+                for (int i = in.readInt(); i > 0; i--) {
+                    ingredients.add(in.readUTF());
+                }
+                applyMeal(Meal.create(id, MealCategory.of(category), name, ingredients));
+            }
+            case PLAN_ID -> applyPlanId(in.readInt(), in.readUTF(), in.readUTF());
+            case PLAN -> {
+                int planId = in.readInt();
+                TreeMap<String, TreeMap<String, Integer>> slots = new TreeMap<>();
+                for (int i = in.readInt(); i > 0; i--) {
+                    slots.computeIfAbsent(in.readUTF(), k -> new TreeMap<>()).put(in.readUTF(), in.readInt());
+                }
+                plans.put(planId, slots);
+            }
+            case SLOT -> plans.computeIfAbsent(in.readInt(), k -> new TreeMap<>())
+                    .computeIfAbsent(in.readUTF(), k -> new TreeMap<>()).put(in.readUTF(), in.readInt());
+            case NUTRITION -> nutrition.put(in.readUTF(), new Nutrition(in.readDouble(), in.readDouble(),
+                    in.readDouble(), in.readDouble(), in.readDouble()));
+            default -> throw new IOException("Unknown record type " + type + " in " + path);
+        }
+    }
+
+    private void applyMeal(Meal meal) {
+        meals.put(meal.getId(), meal);
+        mealNames.add(meal.getName());
+        nextMealId = Math.max(nextMealId, meal.getId() + 1);
+    }
+
+    private void applyPlanId(int planId, String user, String week) {
+        planIds.put(user + '\u0000' + week, planId);
+        planOwners.put(planId, new String[]{user, week});
+        nextPlanId = Math.max(nextPlanId, planId + 1);
+    }
+
+    private long liveRecordCount() {
+        long planRecords = 0;
+        for (TreeMap<String, TreeMap<String, Integer>> plan : plans.values()) {
+            planRecords += plan.isEmpty() ? 0 : 1;
+        }
+        return meals.size() + planIds.size() + planRecords + nutrition.size();
+    }
+
+    @Override
+    public synchronized int nextMealId() {
+        return nextMealId++;
+    }
+
+    @Override
+    public synchronized List<Meal> loadAllMeals() {
+        long start = System.nanoTime();
+        List<Meal> all = new ArrayList<>(meals.values());
+        // Meals live in memory already, each one counts as a row
+        lastLoadStats = new MealCatalogLoader.LoadStats(all.size(), (System.nanoTime() - start) / 1_000_000);
+        return all;
+    }
+
+    @Override
+    public synchronized MealCatalogLoader.LoadStats lastLoadStats() {
+        return lastLoadStats;
+    }
+
+    @Override
+    public synchronized List<Integer> loadMealIds() {
+        return new ArrayList<>(meals.keySet());
+    }
+
+    @Override
+    public synchronized List<Meal> loadMeals(Collection<Integer> mealIds) {
+        List<Meal> found = new ArrayList<>();
+        for (Integer mealId : mealIds) {
+            Meal meal = meals.get(mealId);
+            if (meal != null) {
+                found.add(meal);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void insertMeals(List<Meal> newMeals) throws SQLException {
+        write(newMeals, Map.of(), Map.of());
+    }
+
+    @Override
+    public synchronized CatalogSnapshot.Stamp catalogStamp() {
+        // Meals are never removed from the log, so their count only grows and serves as the version
+        return new CatalogSnapshot.Stamp(meals.size(), meals.size());
+    }
+
+    @Override
+    public synchronized Map<String, Nutrition> loadNutrition() {
+        return new HashMap<>(nutrition);
+    }
+
+    @Override
+    public synchronized void saveNutrition(String ingredient, Nutrition values) throws SQLException {
+        checkString("Ingredient", ingredient);
+        Records records = new Records();
+        records.nutrition(ingredient, values);
+        append(records);
+        nutrition.put(ingredient, values);
+    }
+
+    @Override
+    public synchronized int planId(String user, String week) throws SQLException {
+        Integer planId = planIds.get(user + '\u0000' + week);
+        if (planId != null) {
+            return planId;
+        }
+        checkString("User", user);
+        checkString("Week", week);
+        int newId = nextPlanId;
+        Records records = new Records();
+        records.planId(newId, user, week);
+        append(records);
+        applyPlanId(newId, user, week);
+        return newId;
+    }
+
+    @Override
+    public synchronized int findPlanId(String user, String week) {
+        return planIds.getOrDefault(user + '\u0000' + week, -1);
+    }
+
+    @Override
+    public synchronized List<PlanStore.Slot> loadPlan(int planId) {
+        List<PlanStore.Slot> slots = new ArrayList<>();
+        plans.getOrDefault(planId, new TreeMap<>()).forEach((day, categories) ->
+                categories.forEach((category, mealId) -> slots.add(new PlanStore.Slot(day, category, mealId))));
+        return slots;
+    }
+
+    @Override
+    public void savePlan(int planId, Map<String, Map<String, Meal>> weeklyPlan) throws SQLException {
+        write(List.of(), Map.of(planId, weeklyPlan), Map.of());
+    }
+
+    @Override
+    public synchronized void saveSlot(int planId, String day, String category, int mealId) throws SQLException {
+        checkPlan(planId);
+        checkMeal(mealId, Set.of());
+        checkString("Day", day);
+        checkString("Category", category);
+        Records records = new Records();
+        records.slot(planId, day, category, mealId);
+        append(records);
+        plans.computeIfAbsent(planId, k -> new TreeMap<>()).computeIfAbsent(day, k -> new TreeMap<>()).put(category, mealId);
+    }
+
+    // The log keeps only the current week of each plan, so this counts the slots meals fill right now
+    @Override
+    public synchronized Map<Integer, Integer> loadPlanCounts() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (TreeMap<String, TreeMap<String, Integer>> plan : plans.values()) {
+            for (TreeMap<String, Integer> day : plan.values()) {
+                for (int mealId : day.values()) {
+                    counts.merge(mealId, 1, Integer::sum);
+                }
+            }
+        }
+        return counts;
+    }
+
+    // The log file has a single writer, so there is no other instance to catch up with
+    @Override
+    public long latestChangeId() {
+        return 0;
+    }
+
+    @Override
+    public List<ChangeFeed.Change> changesSince(long afterId, int limit) {
+        return List.of();
+    }
+
+    @Override
+    public List<ChangeFeed.Change> changes(Collection<Long> changeIds) {
+        return List.of();
+    }
+
+    // Everything is checked before the frame is appended, so a rejected write leaves no trace
+    @Override
+    public synchronized void write(List<Meal> newMeals, Map<Integer, Map<String, Map<String, Meal>>> newPlans,
+                                   Map<Integer, List<PlanStore.Slot>> newSlots) throws SQLException {
+        Set<Integer> batchIds = new HashSet<>();
+        Set<String> batchNames = new HashSet<>();
+        Records records = new Records();
+        for (Meal meal : newMeals) {
+            if (meals.containsKey(meal.getId()) || !batchIds.add(meal.getId())) {
+                throw new SQLException("Duplicate meal id " + meal.getId());
+            }
+            if (mealNames.contains(meal.getName()) || !batchNames.add(meal.getName())) {
+                throw new SQLException("Duplicate meal name '" + meal.getName() + "'", MealManager.UNIQUE_VIOLATION);
+            }
+            checkStrings(meal);
+            records.meal(meal);
+        }
+        Map<Integer, TreeMap<String, TreeMap<String, Integer>>> planSlots = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Map<String, Map<String, Meal>>> plan : newPlans.entrySet()) {
+            checkPlan(plan.getKey());
+            TreeMap<String, TreeMap<String, Integer>> slots = new TreeMap<>();
+            for (Map.Entry<String, Map<String, Meal>> day : plan.getValue().entrySet()) {
+                checkString("Day", day.getKey());
+                for (Map.Entry<String, Meal> slot : day.getValue().entrySet()) {
+                    checkString("Category", slot.getKey());
+                    checkMeal(slot.getValue().getId(), batchIds);
+                    slots.computeIfAbsent(day.getKey(), k -> new TreeMap<>()).put(slot.getKey(), slot.getValue().getId());
+                }
+            }
+            records.plan(plan.getKey(), slots);
+            planSlots.put(plan.getKey(), slots);
+        }
+        for (Map.Entry<Integer, List<PlanStore.Slot>> plan : newSlots.entrySet()) {
+            checkPlan(plan.getKey());
+            for (PlanStore.Slot slot : plan.getValue()) {
+                checkMeal(slot.getMealId(), batchIds);
+                checkString("Day", slot.getDay());
+                checkString("Category", slot.getCategory());
+                records.slot(plan.getKey(), slot.getDay(), slot.getCategory(), slot.getMealId());
+            }
+        }
+
+        append(records);
+        for (Meal meal : newMeals) {
+            applyMeal(meal);
+        }
+        plans.putAll(planSlots);
+        for (Map.Entry<Integer, List<PlanStore.Slot>> plan : newSlots.entrySet()) {
+            for (PlanStore.Slot slot : plan.getValue()) {
+                plans.computeIfAbsent(plan.getKey(), k -> new TreeMap<>()).computeIfAbsent(slot.getDay(), k -> new TreeMap<>())
+                        .put(slot.getCategory(), slot.getMealId());
+            }
+        }
+    }
+
+    private void checkPlan(int planId) throws SQLException {
+        if (!planOwners.containsKey(planId)) {
+            throw new SQLException("Unknown plan " + planId);
+        }
+    }
+
+    private void checkMeal(int mealId, Set<Integer> batchIds) throws SQLException {
+        if (!meals.containsKey(mealId) && !batchIds.contains(mealId)) {
+            throw new SQLException("Unknown meal " + mealId);
+        }
+    }
+
+    private static void checkStrings(Meal meal) throws SQLException {
+        checkString("Meal name", meal.getName());
+        IngredientDictionary dictionary = IngredientDictionary.shared();
+        for (int i = 0; i < meal.ingredientCount(); i++) {
+            checkString("Ingredient", dictionary.name(meal.ingredientId(i)));
+        }
+    }
+
+    // Checked before any record is built: an overlong string would fail writeUTF halfway through a frame
+    private static void checkString(String what, String value) throws SQLException {
+        if (value.length() * 3L <= MAX_STRING_BYTES) {
+            return;
+        }
+        long bytes = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            bytes += c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+        }
+        if (bytes > MAX_STRING_BYTES) {
+            throw new SQLException(what + " is " + bytes + " bytes long, the meal log stores at most " + MAX_STRING_BYTES);
+        }
+    }
+
+    private void append(Records records) throws SQLException {
+        if (records.count == 0) {
+            return;
+        }
+        long end;
+        try {
+            end = channel.position();
+        } catch (IOException e) {
+            throw new SQLException("Could not append to meal log " + path + " - " + e.getMessage(), e);
+        }
+        try {
+            writeFrame(channel, records);
+            if (fsync) {
+                channel.force(false);
+            }
+            recordCount += records.count;
+        } catch (IOException e) {
+            // Cut off the partial frame, otherwise the next append lands behind it and replay stops at the tear
+            try {
+                channel.truncate(end);
+                channel.position(end);
+            } catch (IOException truncateError) {
+                e.addSuppressed(truncateError);
+            }
+            throw new SQLException("Could not append to meal log " + path + " - " + e.getMessage(), e);
+        }
+    }
+
+    // Rewrite the log with only the live state, then swap it in atomically
+    public synchronized void compact() throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".compact");
+        long before = channel.size();
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Records records = new Records();
+            for (Meal meal : meals.values()) {
+                records.meal(meal);
+                if (records.count == MEALS_PER_FRAME) {
+                    writeFrame(out, records);
+                    records = new Records();
+                }
+            }
+            for (Map.Entry<Integer, String[]> owner : planOwners.entrySet()) {
+                records.planId(owner.getKey(), owner.getValue()[0], owner.getValue()[1]);
+            }
+            for (Map.Entry<Integer, TreeMap<String, TreeMap<String, Integer>>> plan : plans.entrySet()) {
+                if (!plan.getValue().isEmpty()) {
+                    records.plan(plan.getKey(), plan.getValue());
+                }
+            }
+            nutrition.forEach(records::nutrition);
+            writeFrame(out, records);
+            out.force(true);
+        }
+        channel.close();
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        recordCount = liveRecordCount();
+        System.err.printf("Compacted meal log %s from %,d to %,d bytes%n", path, before, channel.size());
+    }
+
+    private static void writeFrame(FileChannel out, Records records) throws IOException {
+        if (records.count == 0) {
+            return;
+        }
+        byte[] payload = records.bytes.toByteArray();
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER + payload.length);
+        frame.putInt(payload.length).putInt(crc(payload)).put(payload).flip();
+        while (frame.hasRemaining()) {
+            out.write(frame);
+        }
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    public synchronized long getLogSize() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Records of one frame
+    private static class Records {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private int count;
+
+        void meal(Meal meal) {
+            try {
+                out.writeByte(MEAL);
+                out.writeInt(meal.getId());
+                out.writeUTF(meal.getCategory().label());
+                out.writeUTF(meal.getName());
+                out.writeInt(meal.ingredientCount());
+                IngredientDictionary dictionary = IngredientDictionary.shared();
+                for (int i = 0; i < meal.ingredientCount(); i++) {
+                    out.writeUTF(dictionary.name(meal.ingredientId(i)));
+                }
+                count++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void planId(int planId, String user, String week) {
+            try {
+                out.writeByte(PLAN_ID);
+                out.writeInt(planId);
+                out.writeUTF(user);
+                out.writeUTF(week);
+                count++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void plan(int planId, TreeMap<String, TreeMap<String, Integer>> slots) {
+            try {
+                out.writeByte(PLAN);
+                out.writeInt(planId);
+                int size = 0;
+                for (TreeMap<String, Integer> categories : slots.values()) {
+                    size += categories.size();
+                }
+                out.writeInt(size);
+                for (Map.Entry<String, TreeMap<String, Integer>> day : slots.entrySet()) {
+                    for (Map.Entry<String, Integer> slot : day.getValue().entrySet()) {
+                        out.writeUTF(day.getKey());
+                        out.writeUTF(slot.getKey());
+                        out.writeInt(slot.getValue());
+                    }
+                }
+                count++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void slot(int planId, String day, String category, int mealId) {
+            try {
+                out.writeByte(SLOT);
+                out.writeInt(planId);
+                out.writeUTF(day);
+                out.writeUTF(category);
+                out.writeInt(mealId);
+                count++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void nutrition(String ingredient, Nutrition values) {
+            try {
+                out.writeByte(NUTRITION);
+                out.writeUTF(ingredient);
+                out.writeDouble(values.getCalories());
+                out.writeDouble(values.getProtein());
+                out.writeDouble(values.getCarbs());
+                out.writeDouble(values.getFat());
+                out.writeDouble(values.getPrice());
+                count++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
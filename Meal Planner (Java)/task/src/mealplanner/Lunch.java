@@ -1,10 +0,0 @@
-package mealplanner;
-
-import java.util.LinkedHashSet;
-
-public class Lunch extends Meal {
-    public Lunch(String name, LinkedHashSet<String> ingredients) {
-        super("lunch", name, ingredients);
-    }
-
-}
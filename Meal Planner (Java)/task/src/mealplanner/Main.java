@@ -1,15 +1,46 @@
 package mealplanner;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
 import java.util.Scanner;
 
 public class Main {
     public static void main(String[] args) {
+        MealRepository repository = null;
+        MealManager mealManager = null;
+        // In serve mode the shutdown hook owns both and closes them once the server has stopped
+        boolean serving = false;
         try {
-            DatabaseManager dbManager = new DatabaseManager();
-            dbManager.initializeDatabase();
+            repository = openRepository();
+            mealManager = new MealManager(repository);
+            Metrics.gauge("mealCache", mealManager.getMealCache()::toString);
+            // Operation timings are logged to stderr, -Dmealplanner.metrics.intervalSeconds=0 turns it off
+            Metrics.startReporting(Long.getLong("mealplanner.metrics.intervalSeconds", 60));
+            // Meals added by other instances on the same database show up within the interval, 0 turns it off
+            long syncIntervalMillis = Long.getLong("mealplanner.sync.intervalMillis", 1_000);
+            if (syncIntervalMillis > 0) {
+                mealManager.startCatalogSync(syncIntervalMillis);
+                Metrics.gauge("catalogSync", mealManager.getCatalogSync()::toString);
+            }
+
+            // "serve [port]" runs the HTTP/JSON service instead of the console
+            if (args.length > 0 && args[0].equals("serve")) {
+                MealPlannerServer server = new MealPlannerServer(mealManager, args.length > 1 ? Integer.parseInt(args[1]) : 8080);
+                server.start();
+                // Stopped with a signal, so queued writes are flushed from a shutdown hook
+                MealRepository servedRepository = repository;
+                MealManager servedManager = mealManager;
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    server.stop();
+                    close(servedManager, servedRepository);
+                }));
+                serving = true;
+                System.out.println("Listening on port " + server.getPort());
+                Thread.currentThread().join();
+                return;
+            }
 
-            MealManager mealManager = new MealManager(dbManager);
             Scanner scanner = new Scanner(System.in);
 
             while (true) {
@@ -26,6 +57,18 @@ public class Main {
                     case "plan":
                         mealManager.planMeals(scanner);
                         break;
+                    case "search":
+                        mealManager.searchMealsInteractive(scanner);
+                        break;
+                    case "find":
+                        mealManager.findMealsInteractive(scanner);
+                        break;
+                    case "similar":
+                        mealManager.similarMealsInteractive(scanner);
+                        break;
+                    case "import":
+                        mealManager.importMealsInteractive(scanner);
+                        break;
                     case "list plan":
                         mealManager.listPlan();
                         break;
@@ -38,8 +81,40 @@ public class Main {
                         System.out.println("Invalid option. Please try again.");
                 }
             }
-        } catch (SQLException e) {
+        } catch (SQLException | IOException e) {
             e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!serving) {
+                close(mealManager, repository);
+            }
+        }
+    }
+
+    // Closing the meal manager first flushes queued writes while the repository is still open
+    private static void close(MealManager mealManager, MealRepository repository) {
+        if (mealManager != null) {
+            mealManager.close();
+        }
+        if (repository != null) {
+            repository.close();
+        }
+    }
+
+    // -Dmealplanner.storage=postgres (default) or log for the embedded store in -Dmealplanner.log.path
+    private static MealRepository openRepository() throws SQLException {
+        String storage = System.getProperty("mealplanner.storage", "postgres");
+        switch (storage) {
+            case "postgres":
+                DatabaseManager dbManager = new DatabaseManager();
+                Metrics.gauge("pool", dbManager.getPool()::toString);
+                return new JdbcMealRepository(dbManager);
+            case "log":
+                return new LogMealRepository(Path.of(System.getProperty("mealplanner.log.path", "meals.log")),
+                        !"false".equals(System.getProperty("mealplanner.log.fsync")));
+            default:
+                throw new IllegalArgumentException("Unknown storage '" + storage + "', use postgres or log");
         }
     }
-}
\ No newline at end of file
+}
@@ -1,31 +1,52 @@
 package mealplanner;
 
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
-import java.util.Map;
 
-public abstract class Meal {
-    protected int id;
-    protected String category;
-    protected String name;
-    protected LinkedHashSet<String> ingredients;
-    private final Map<String, Map<String, Meal>> weeklyPlan = new LinkedHashMap<>();
+// An immutable catalog entry, safe to share between threads without copying
+public final class Meal {
+    private final int id;
+    private final MealCategory category;
+    private final String name;
+    // Ids in the shared IngredientDictionary, in the order the ingredients were entered
+    private final int[] ingredientIds;
 
-    public Meal(String category, String name, LinkedHashSet<String> ingredients) {
+    private Meal(int id, MealCategory category, String name, int[] ingredientIds) {
+        this.id = id;
         this.category = category;
         this.name = name;
-        this.ingredients = ingredients;
+        this.ingredientIds = ingredientIds;
     }
 
-    public int getId() {
-        return id;
+    private static int[] internAll(LinkedHashSet<String> ingredients) {
+        IngredientDictionary dictionary = IngredientDictionary.shared();
+        int[] ids = new int[ingredients.size()];
+        int i = 0;
+        for (String ingredient : ingredients) {
+            ids[i++] = dictionary.intern(ingredient);
+        }
+        return ids;
     }
 
-    public void setId(int id) {
-        this.id = id;
+    // Factory for a meal without an id yet, null when the category is unknown
+    public static Meal create(String category, String name, LinkedHashSet<String> ingredients) {
+        MealCategory mealCategory = MealCategory.of(category);
+        return mealCategory == null ? null : create(0, mealCategory, name, ingredients);
     }
 
-    public String getCategory() {
+    public static Meal create(int id, MealCategory category, String name, LinkedHashSet<String> ingredients) {
+        return new Meal(id, category, name, internAll(ingredients));
+    }
+
+    // The same meal under the id it was stored with, the ingredient array is shared
+    public Meal withId(int id) {
+        return new Meal(id, category, name, ingredientIds);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public MealCategory getCategory() {
         return category;
     }
 
@@ -33,16 +54,46 @@ public abstract class Meal {
         return name;
     }
 
+    // A fresh copy of the ingredient names, hot paths should use ingredientId instead
     public LinkedHashSet<String> getIngredients() {
+        IngredientDictionary dictionary = IngredientDictionary.shared();
+        LinkedHashSet<String> ingredients = new LinkedHashSet<>();
+        for (int id : ingredientIds) {
+            ingredients.add(dictionary.name(id));
+        }
         return ingredients;
     }
 
+    public int ingredientCount() {
+        return ingredientIds.length;
+    }
+
+    // Dictionary id of the index-th ingredient, in the order the ingredients were entered
+    public int ingredientId(int index) {
+        return ingredientIds[index];
+    }
+
+    // A fresh copy of the ingredient ids, the meal's own array never leaves it
+    public int[] copyIngredientIds() {
+        return ingredientIds.clone();
+    }
+
+    public boolean hasIngredient(int ingredientId) {
+        for (int id : ingredientIds) {
+            if (id == ingredientId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public void display() {
         System.out.println("Category: " + category);
         System.out.println("Name: " + name);
         System.out.println("Ingredients:");
-        for (String ingredient : ingredients) {
-            System.out.println(ingredient);
+        IngredientDictionary dictionary = IngredientDictionary.shared();
+        for (int id : ingredientIds) {
+            System.out.println(dictionary.name(id));
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,136 @@
+package mealplanner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+public class MealBatchWriter {
+    // Rows per multi-row INSERT, kept well below PostgreSQL's 32767 bind parameter limit
+    private static final int ROWS_PER_STATEMENT = 1000;
+    // Schema version that added the normalized ingredient_names table
+    private static final int INGREDIENT_NAMES_VERSION = 3;
+    // Schema version that added the catalog_changes feed
+    private static final int CHANGE_FEED_VERSION = 7;
+
+    private final boolean writeIngredientNames;
+    private final boolean writeChanges;
+
+    public MealBatchWriter(DatabaseManager dbManager) {
+        this.writeIngredientNames = dbManager.getSchemaVersion() >= INGREDIENT_NAMES_VERSION;
+        this.writeChanges = dbManager.getSchemaVersion() >= CHANGE_FEED_VERSION;
+    }
+
+    // Insert meals that already have ids, using multi-row INSERTs on the caller's connection and transaction
+    public void insert(Connection connection, List<Meal> meals) throws SQLException {
+        for (int from = 0; from < meals.size(); from += ROWS_PER_STATEMENT) {
+            List<Meal> slice = meals.subList(from, Math.min(from + ROWS_PER_STATEMENT, meals.size()));
+            try (PreparedStatement ps = connection.prepareStatement(
+                    multiRowInsert("INSERT INTO meals (meal_id, category, meal) VALUES ", "(?, ?, ?)", slice.size()))) {
+                int index = 1;
+                for (Meal meal : slice) {
+                    ps.setInt(index++, meal.getId());
+                    ps.setString(index++, meal.getCategory().label());
+                    ps.setString(index++, meal.getName());
+                }
+                ps.executeUpdate();
+            }
+        }
+
+        if (writeIngredientNames) {
+            insertIngredientNames(connection, meals);
+        }
+
+        int pending = 0;
+        int[] mealIds = new int[ROWS_PER_STATEMENT];
+        String[] ingredients = new String[ROWS_PER_STATEMENT];
+        IngredientDictionary dictionary = IngredientDictionary.shared();
+        for (Meal meal : meals) {
+            for (int i = 0; i < meal.ingredientCount(); i++) {
+                mealIds[pending] = meal.getId();
+                ingredients[pending] = dictionary.name(meal.ingredientId(i));
+                if (++pending == ROWS_PER_STATEMENT) {
+                    insertIngredients(connection, mealIds, ingredients, pending);
+                    pending = 0;
+                }
+            }
+        }
+        if (pending > 0) {
+            insertIngredients(connection, mealIds, ingredients, pending);
+        }
+
+        // Committed together with the meals, so other instances never see a change before its meal
+        if (writeChanges) {
+            insertChanges(connection, meals);
+        }
+    }
+
+    private void insertChanges(Connection connection, List<Meal> meals) throws SQLException {
+        for (int from = 0; from < meals.size(); from += ROWS_PER_STATEMENT) {
+            List<Meal> slice = meals.subList(from, Math.min(from + ROWS_PER_STATEMENT, meals.size()));
+            try (PreparedStatement ps = connection.prepareStatement(
+                    multiRowInsert("INSERT INTO catalog_changes (meal_id) VALUES ", "(?)", slice.size()))) {
+                int index = 1;
+                for (Meal meal : slice) {
+                    ps.setInt(index++, meal.getId());
+                }
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private void insertIngredientNames(Connection connection, List<Meal> meals) throws SQLException {
+        IngredientDictionary dictionary = IngredientDictionary.shared();
+        Set<String> names = new LinkedHashSet<>();
+        for (Meal meal : meals) {
+            for (int i = 0; i < meal.ingredientCount(); i++) {
+                names.add(dictionary.name(meal.ingredientId(i)));
+            }
+        }
+        List<String> pending = List.copyOf(names);
+        for (int from = 0; from < pending.size(); from += ROWS_PER_STATEMENT) {
+            List<String> slice = pending.subList(from, Math.min(from + ROWS_PER_STATEMENT, pending.size()));
+            String sql = multiRowInsert("INSERT INTO ingredient_names (name) VALUES ", "(?)", slice.size())
+                    + " ON CONFLICT DO NOTHING";
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                int index = 1;
+                for (String name : slice) {
+                    ps.setString(index++, name);
+                }
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private void insertIngredients(Connection connection, int[] mealIds, String[] ingredients, int count) throws SQLException {
+        String sql = writeIngredientNames
+                ? multiRowInsert("INSERT INTO ingredients (ingredient, meal_id, ingredient_name_id) VALUES ",
+                "(?, ?, (SELECT ingredient_name_id FROM ingredient_names WHERE name = ?))", count)
+                : multiRowInsert("INSERT INTO ingredients (ingredient, meal_id) VALUES ", "(?, ?)", count);
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            int index = 1;
+            for (int i = 0; i < count; i++) {
+                ps.setString(index++, ingredients[i]);
+                ps.setInt(index++, mealIds[i]);
+                if (writeIngredientNames) {
+                    ps.setString(index++, ingredients[i]);
+                }
+            }
+            ps.executeUpdate();
+        }
+    }
+
+    private static String multiRowInsert(String prefix, String row, int rows) {
+        StringBuilder sql = new StringBuilder(prefix.length() + rows * (row.length() + 2));
+        sql.append(prefix);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(row);
+        }
+        return sql.toString();
+    }
+}
@@ -0,0 +1,79 @@
+package mealplanner;
+
+import java.sql.SQLException;
+import java.util.*;
+
+public class MealCache {
+    private final int capacity;
+    private final MealRepository repository;
+    private final LinkedHashMap<Integer, Meal> entries;
+    private long hits;
+    private long misses;
+
+    public MealCache(int capacity, MealRepository repository) {
+        this.capacity = capacity;
+        this.repository = repository;
+        // Access order turns the map into an LRU list, the eldest entry is evicted on overflow
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Meal> eldest) {
+                return size() > MealCache.this.capacity;
+            }
+        };
+    }
+
+    public synchronized void put(Meal meal) {
+        entries.put(meal.getId(), meal);
+    }
+
+    public synchronized void remove(Meal meal) {
+        entries.remove(meal.getId(), meal);
+    }
+
+    // Get a meal by id, loading it from the database on a miss
+    public Meal get(int mealId) throws SQLException {
+        return getAll(Collections.singleton(mealId)).get(mealId);
+    }
+
+    // Get several meals at once, all misses are loaded with a single query
+    public Map<Integer, Meal> getAll(Collection<Integer> mealIds) throws SQLException {
+        Map<Integer, Meal> found = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        synchronized (this) {
+            for (Integer mealId : mealIds) {
+                Meal meal = entries.get(mealId);
+                if (meal != null) {
+                    hits++;
+                    found.put(mealId, meal);
+                } else if (!missing.contains(mealId)) {
+                    misses++;
+                    missing.add(mealId);
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (Meal meal : repository.loadMeals(missing)) {
+                put(meal);
+                found.put(meal.getId(), meal);
+            }
+        }
+        return found;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "size=" + entries.size() + " hits=" + hits + " misses=" + misses;
+    }
+}
@@ -0,0 +1,138 @@
+package mealplanner;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+public class MealCatalogLoader {
+    // Rows pulled per round trip while streaming the catalog
+    private static final int FETCH_SIZE = 5000;
+    private static final String LOAD_ALL_SQL = "SELECT m.meal_id, m.category, m.meal, i.ingredient " +
+            "FROM meals m LEFT JOIN ingredients i ON i.meal_id = m.meal_id " +
+            "ORDER BY m.meal_id, i.ingredient_id";
+    private static final String LOAD_BY_IDS_SQL = "SELECT m.meal_id, m.category, m.meal, i.ingredient " +
+            "FROM meals m LEFT JOIN ingredients i ON i.meal_id = m.meal_id " +
+            "WHERE m.meal_id = ANY(?) " +
+            "ORDER BY m.meal_id, i.ingredient_id";
+    private static final String LOAD_IDS_SQL = "SELECT meal_id FROM meals";
+
+    private final DatabaseManager dbManager;
+    private long rowsRead;
+    private long elapsedMillis;
+
+    public MealCatalogLoader(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+    }
+
+    // Load every meal together with its ingredients in a single streamed query
+    public List<Meal> loadAll() throws SQLException {
+        long start = System.nanoTime();
+        try (Connection connection = dbManager.getConnection()) {
+            // PostgreSQL only honours the fetch size inside a transaction
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.setFetchSize(FETCH_SIZE);
+                try (ResultSet rs = statement.executeQuery(LOAD_ALL_SQL)) {
+                    return readMeals(rs);
+                }
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        }
+    }
+
+    // Load the given meals with their ingredients in one round trip
+    public List<Meal> loadByIds(Collection<Integer> mealIds) throws SQLException {
+        try (Connection connection = dbManager.getConnection();
+             PreparedStatement ps = connection.prepareStatement(LOAD_BY_IDS_SQL)) {
+            ps.setArray(1, connection.createArrayOf("integer", mealIds.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                return readMeals(rs);
+            }
+        }
+    }
+
+    // Ids of every stored meal, without their ingredients
+    public List<Integer> loadIds() throws SQLException {
+        List<Integer> mealIds = new ArrayList<>();
+        try (Connection connection = dbManager.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(LOAD_IDS_SQL)) {
+            while (rs.next()) {
+                mealIds.add(rs.getInt("meal_id"));
+            }
+        }
+        return mealIds;
+    }
+
+    // Group the joined rows (ordered by meal_id) into one Meal per id
+    private List<Meal> readMeals(ResultSet rs) throws SQLException {
+        List<Meal> loaded = new ArrayList<>();
+        rowsRead = 0;
+
+        int currentId = -1;
+        String category = null;
+        String name = null;
+        LinkedHashSet<String> ingredients = null;
+
+        while (rs.next()) {
+            rowsRead++;
+            int mealId = rs.getInt("meal_id");
+            if (ingredients == null || mealId != currentId) {
+                if (ingredients != null) {
+                    addMeal(loaded, currentId, category, name, ingredients);
+                }
+                currentId = mealId;
+                category = rs.getString("category");
+                name = rs.getString("meal");
+                ingredients = new LinkedHashSet<>();
+            }
+            String ingredient = rs.getString("ingredient");
+            if (ingredient != null) {
+                ingredients.add(ingredient);
+            }
+        }
+        if (ingredients != null) {
+            addMeal(loaded, currentId, category, name, ingredients);
+        }
+        return loaded;
+    }
+
+    private void addMeal(List<Meal> loaded, int mealId, String category, String name, LinkedHashSet<String> ingredients) {
+        MealCategory mealCategory = MealCategory.of(category);
+        if (mealCategory != null) {
+            loaded.add(Meal.create(mealId, mealCategory, name, ingredients));
+        }
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    // Rows read and time taken by one full catalog load
+    public static class LoadStats {
+        private final long rowsRead;
+        private final long elapsedMillis;
+
+        public LoadStats(long rowsRead, long elapsedMillis) {
+            this.rowsRead = rowsRead;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+}
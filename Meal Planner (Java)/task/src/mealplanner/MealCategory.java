@@ -0,0 +1,40 @@
+package mealplanner;
+
+public enum MealCategory {
+    BREAKFAST("breakfast"),
+    LUNCH("lunch"),
+    DINNER("dinner");
+
+    private static final MealCategory[] VALUES = values();
+
+    private final String label;
+
+    MealCategory(String label) {
+        this.label = label;
+    }
+
+    // The lowercase name used by the console, the database and the JSON API
+    public String label() {
+        return label;
+    }
+
+    // Parse a lowercase label, null when the category is unknown
+    public static MealCategory of(String label) {
+        return switch (label) {
+            case "breakfast" -> BREAKFAST;
+            case "lunch" -> LUNCH;
+            case "dinner" -> DINNER;
+            default -> null;
+        };
+    }
+
+    // Look up a category by its ordinal, as stored in snapshot files
+    public static MealCategory ofCode(int code) {
+        return VALUES[code];
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,176 @@
+package mealplanner;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.*;
+
+public class MealImporter {
+    // Meals committed per transaction
+    private static final int CHUNK_SIZE = 5000;
+    // Rejections kept for the report, the rest are only counted
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+
+    private final MealRepository repository;
+    private final MealManager mealManager;
+
+    public MealImporter(MealRepository repository, MealManager mealManager) {
+        this.repository = repository;
+        this.mealManager = mealManager;
+    }
+
+    // Stream a .csv (category,name,"ingredient, ingredient") or .jsonl file into the catalog
+    public Report importFile(Path file) throws IOException, SQLException {
+        boolean jsonLines = file.getFileName().toString().toLowerCase().endsWith(".jsonl");
+        Report report = new Report();
+        Set<String> seenNames = new HashSet<>();
+        List<Meal> chunk = new ArrayList<>(CHUNK_SIZE);
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank() || (!jsonLines && lineNumber == 1 && line.toLowerCase().startsWith("category,"))) {
+                    continue;
+                }
+                report.rowsRead++;
+                try {
+                    Meal meal = jsonLines ? parseJsonLine(line) : parseCsvLine(line);
+                    if (!seenNames.add(meal.getName()) || mealManager.containsMeal(meal.getName())) {
+                        throw new IllegalArgumentException("duplicate meal '" + meal.getName() + "'");
+                    }
+                    chunk.add(meal);
+                } catch (IllegalArgumentException e) {
+                    report.reject(lineNumber, e.getMessage());
+                }
+                if (chunk.size() == CHUNK_SIZE) {
+                    writeChunk(chunk, report);
+                }
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, report);
+        }
+        report.elapsedNanos = System.nanoTime() - report.startNanos;
+        return report;
+    }
+
+    // Write one chunk of meals in a single transaction, a failed chunk is rolled back as a whole
+    private void writeChunk(List<Meal> chunk, Report report) {
+        chunk.replaceAll(meal -> meal.withId(repository.nextMealId()));
+        try {
+            repository.insertMeals(chunk);
+        } catch (SQLException e) {
+            report.reject(-1, "chunk of " + chunk.size() + " meals rolled back - " + e.getMessage());
+            report.rejected += chunk.size() - 1;
+            chunk.clear();
+            return;
+        }
+        mealManager.addToCatalog(chunk);
+        report.imported += chunk.size();
+        chunk.clear();
+    }
+
+    private Meal parseCsvLine(String line) {
+        List<String> fields = splitCsv(line);
+        if (fields.size() != 3) {
+            throw new IllegalArgumentException("expected 3 columns but found " + fields.size());
+        }
+        IngredientParser.Result parsed = IngredientParser.parse(fields.get(2).trim().toLowerCase());
+        if (!parsed.isValid()) {
+            throw new IllegalArgumentException("wrong ingredient format '" + parsed.getErrors().get(0) + "'");
+        }
+        return mealManager.buildMeal(fields.get(0), fields.get(1), parsed.getIngredients());
+    }
+
+    private Meal parseJsonLine(String line) {
+        Object parsed = Json.parse(line);
+        if (!(parsed instanceof Map<?, ?> row)) {
+            throw new IllegalArgumentException("expected a JSON object");
+        }
+        if (!(row.get("category") instanceof String category) || !(row.get("name") instanceof String name)
+                || !(row.get("ingredients") instanceof List<?> ingredientValues)) {
+            throw new IllegalArgumentException("expected string 'category', 'name' and array 'ingredients'");
+        }
+        List<String> ingredients = new ArrayList<>();
+        for (Object value : ingredientValues) {
+            ingredients.add(String.valueOf(value));
+        }
+        return mealManager.buildMeal(category, name, ingredients);
+    }
+
+    // Split one CSV record, double quotes may wrap fields that contain commas
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    public static class Report {
+        private final long startNanos = System.nanoTime();
+        private long elapsedNanos;
+        private long rowsRead;
+        private long imported;
+        private long rejected;
+        private final List<String> rejections = new ArrayList<>();
+
+        private void reject(int lineNumber, String reason) {
+            rejected++;
+            if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                rejections.add(lineNumber > 0 ? "line " + lineNumber + ": " + reason : reason);
+            }
+        }
+
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public List<String> getRejections() {
+            return rejections;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rowsRead * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Imported %d of %d rows in %d ms (%.0f rows/sec), %d rejected",
+                    imported, rowsRead, getElapsedMillis(), getRowsPerSecond(), rejected);
+        }
+    }
+}
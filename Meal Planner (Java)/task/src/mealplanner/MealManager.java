@@ -1,51 +1,137 @@
 package mealplanner;
 
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.*;
+import java.time.Duration;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-public class MealManager {
-    private final LinkedHashMap<String, Meal> meals = new LinkedHashMap<>();
-    private final DatabaseManager dbManager;
-    private final Map<String, Map<String, Meal>> weeklyPlan = new LinkedHashMap<>();
+import java.util.concurrent.ConcurrentHashMap;
+
+public class MealManager implements AutoCloseable {
+    // Upper bound of meals kept in the id cache
+    private static final int MEAL_CACHE_SIZE = 50_000;
+    // The plan the console works on
+    public static final String DEFAULT_USER = "default";
+    public static final String DEFAULT_WEEK = "current";
+    // Locks serializing plan writes per user and week
+    private static final int PLAN_LOCK_STRIPES = 64;
+    // Results shown by the search command
+    private static final int SEARCH_LIMIT = 20;
+    // Completions shown by the find command and suggestions for a mistyped name
+    private static final int COMPLETION_LIMIT = 10;
+    private static final int SUGGESTION_LIMIT = 3;
+    private static final int MAX_TYPOS = 2;
+    // "sync" commits every write before returning, "write-behind" queues it for a background writer
+    private static final String PERSISTENCE = System.getProperty("mealplanner.persistence", "sync");
+    private static final int WRITE_BEHIND_CAPACITY = Integer.getInteger("mealplanner.writeBehind.capacity", 10_000);
+    private static final int WRITE_BEHIND_BATCH_SIZE = Integer.getInteger("mealplanner.writeBehind.batchSize", 1_000);
+    // Catalog snapshot file for fast startup, unset to always load from the database
+    private static final String SNAPSHOT_PATH = System.getProperty("mealplanner.snapshot");
+    // Plan sessions kept in memory, the least recently used idle ones are dropped beyond this
+    private static final int MAX_SESSIONS = Integer.getInteger("mealplanner.sessions.max", 10_000);
+    // Widths of plans.user_name and plans.week
+    private static final int MAX_USER_LENGTH = 255;
+    private static final int MAX_WEEK_LENGTH = 16;
+    // SQLState of a unique constraint violation, in PostgreSQL and H2 alike
+    static final String UNIQUE_VIOLATION = "23505";
+
+    private final Map<String, Meal> meals = new ConcurrentHashMap<>();
+    private final MealRepository repository;
+    private final MealCache mealCache;
+    private final CategoryIndex categoryIndex = new CategoryIndex();
+    private final PlanGenerator planGenerator = new PlanGenerator(categoryIndex);
+    private final StripedLock planLocks = new StripedLock(PLAN_LOCK_STRIPES);
+    // Access ordered, so iteration starts at the least recently used session; guarded by itself
+    private final LinkedHashMap<String, PlanSession> sessions = new LinkedHashMap<>(16, 0.75f, true);
+    private final IngredientIndex ingredientIndex = new IngredientIndex();
+    private final NameIndex nameIndex = new NameIndex();
+    private final SimilarityIndex similarityIndex = new SimilarityIndex();
+    private final WriteBehindWriter writeBehind;
+    private final NutritionTable nutritionTable;
+    private final PlanOptimizer planOptimizer;
+    private final CatalogSync catalogSync;
 
     public MealManager(DatabaseManager dbManager) throws SQLException {
-        this.dbManager = dbManager;
-        loadMealsFromDatabase();
-    }
-
-    // Load meals from the database into the 'meals' map
-    private void loadMealsFromDatabase() throws SQLException {
-        String queryMeals = "SELECT * FROM meals";
-        try (Statement statement = dbManager.getConnection().createStatement();
-             ResultSet rsMeals = statement.executeQuery(queryMeals)) {
-
-            while (rsMeals.next()) {
-                String category = rsMeals.getString("category");
-                String mealName = rsMeals.getString("meal");
-                int mealID = rsMeals.getInt("meal_id");
-
-                LinkedHashSet<String> ingredients = new LinkedHashSet<>();
-                String queryIngredients = "SELECT ingredient FROM ingredients WHERE meal_id = ?";
-                try (PreparedStatement ps = dbManager.getConnection().prepareStatement(queryIngredients)) {
-                    ps.setInt(1, mealID);
-                    ResultSet rsIngredients = ps.executeQuery();
-                    while (rsIngredients.next()) {
-                        ingredients.add(rsIngredients.getString("ingredient"));
-                    }
-                }
+        this(new JdbcMealRepository(dbManager));
+    }
+
+    public MealManager(DatabaseManager dbManager, boolean writeBehind) throws SQLException {
+        this(new JdbcMealRepository(dbManager), writeBehind, SNAPSHOT_PATH == null ? null : Path.of(SNAPSHOT_PATH));
+    }
 
-                Meal meal = createMeal(category, mealName, ingredients);
-                meal.setId(mealID);
-                meals.put(mealName.toLowerCase(), meal);
+    public MealManager(DatabaseManager dbManager, boolean writeBehind, Path snapshotPath) throws SQLException {
+        this(new JdbcMealRepository(dbManager), writeBehind, snapshotPath);
+    }
+
+    public MealManager(MealRepository repository) throws SQLException {
+        this(repository, PERSISTENCE.equals("write-behind"), SNAPSHOT_PATH == null ? null : Path.of(SNAPSHOT_PATH));
+    }
+
+    // snapshotPath is null to always load the catalog from the repository; the caller keeps ownership of the repository
+    public MealManager(MealRepository repository, boolean writeBehind, Path snapshotPath) throws SQLException {
+        this.repository = repository;
+        this.writeBehind = writeBehind
+                ? new WriteBehindWriter(repository, WRITE_BEHIND_CAPACITY, WRITE_BEHIND_BATCH_SIZE)
+                : null;
+        this.mealCache = new MealCache(MEAL_CACHE_SIZE, repository);
+        this.nutritionTable = NutritionTable.of(repository.loadNutrition());
+        this.planOptimizer = new PlanOptimizer(planGenerator, nutritionTable, Runtime.getRuntime().availableProcessors());
+        // Read before the catalog, so every meal stored after it is picked up by the sync
+        long loadedChangeId = repository.latestChangeId();
+        loadMealsFromDatabase(snapshotPath);
+        this.catalogSync = new CatalogSync(repository, this, loadedChangeId);
+
+        // Name completions rank meals by how often they have been planned
+        Map<Integer, Integer> planCounts = repository.loadPlanCounts();
+        for (Meal meal : meals.values()) {
+            Integer count = planCounts.get(meal.getId());
+            if (count != null) {
+                nameIndex.recordUse(meal, count);
             }
+        }
+    }
+
+    // Load meals from the snapshot file when it is current, otherwise from the database into the 'meals' map
+    private void loadMealsFromDatabase(Path snapshotPath) throws SQLException {
+        CatalogSnapshot.Stamp stamp = snapshotPath == null ? null : repository.catalogStamp();
+        // Without a version the snapshot could never be trusted
+        CatalogSnapshot snapshot = stamp == null ? null : new CatalogSnapshot(snapshotPath);
+        if (snapshot != null) {
+            try {
+                List<Meal> snapshotMeals = snapshot.read(stamp);
+                if (snapshotMeals != null) {
+                    Metrics.run("catalog.snapshotLoad", () -> addToCatalog(snapshotMeals));
+                    System.err.printf("Loaded %d meals from snapshot in %d ms%n", meals.size(), snapshot.getElapsedMillis());
+                    return;
+                }
+            } catch (IOException e) {
+                System.err.println("Could not read catalog snapshot: " + e.getMessage());
+            }
+        }
+
+        List<Meal> loaded;
+        try {
+            loaded = Metrics.time("catalog.load", () -> {
+                List<Meal> all = repository.loadAllMeals();
+                addToCatalog(all);
+                return all;
+            });
         } catch (SQLException e) {
             e.printStackTrace();
             throw new SQLException("Error loading meals from database", e);
         }
+        MealCatalogLoader.LoadStats stats = repository.lastLoadStats();
+        System.err.printf("Loaded %d meals (%d rows) in %d ms%n",
+                meals.size(), stats.getRowsRead(), stats.getElapsedMillis());
+
+        // The stamp was read before loading, so a write in between only makes the snapshot look stale
+        if (snapshot != null) {
+            try {
+                snapshot.write(stamp, loaded);
+            } catch (IOException e) {
+                System.err.println("Could not write catalog snapshot: " + e.getMessage());
+            }
+        }
     }
 
     // Method for adding a meal interactively
@@ -54,17 +140,26 @@ public class MealManager {
         String name = promptForName(scanner);
         LinkedHashSet<String> ingredients = promptForIngredients(scanner);
 
+        // Meal names are unique in the database
+        if (containsMeal(name)) {
+            System.out.println("This meal already exists.");
+            return;
+        }
+
         Meal meal = createMeal(category, name, ingredients);
-        addMeal(meal);
+        if (addMeal(meal) == null) {
+            System.out.println("This meal already exists.");
+            return;
+        }
+        System.out.println("The meal has been added!");
     }
 
     private Meal createMeal(String category, String name, LinkedHashSet<String> ingredients) {
-        return switch (category) {
-            case "breakfast" -> new Breakfast(name, ingredients);
-            case "lunch" -> new Lunch(name, ingredients);
-            case "dinner" -> new Dinner(name, ingredients);
-            default -> throw new IllegalArgumentException("Invalid category: " + category);
-        };
+        Meal meal = Meal.create(category, name, ingredients);
+        if (meal == null) {
+            throw new IllegalArgumentException("Invalid category: " + category);
+        }
+        return meal;
     }
 
     private String promptForName(Scanner scanner) {
@@ -87,12 +182,11 @@ public class MealManager {
             category = scanner.nextLine().trim().toLowerCase();
         }
 
-        List<Meal> categoryMeals = getMealsByCategory(category);
+        Collection<Meal> categoryMeals = getMealsByCategory(category);
 
         if (categoryMeals.isEmpty()) {
             System.out.println("No meals found.");
         } else {
-            categoryMeals.sort(Comparator.comparing(Meal::getName));
             System.out.println("Category: " + category);
             for (Meal meal : categoryMeals) {
                 meal.display();
@@ -105,11 +199,13 @@ public class MealManager {
         System.out.println("Input the ingredients:");
         String ingredientsInput = scanner.nextLine().trim().toLowerCase();
 
-        while (!isValidIngredientsInput(ingredientsInput)) {
+        IngredientParser.Result parsed = IngredientParser.parse(ingredientsInput);
+        while (!parsed.isValid()) {
             System.out.println("Wrong format. Use letters only!");
             ingredientsInput = scanner.nextLine().trim().toLowerCase();
+            parsed = IngredientParser.parse(ingredientsInput);
         }
-        return new LinkedHashSet<>(Arrays.asList(ingredientsInput.split(",\\s*")));
+        return parsed.getIngredients();
     }
 
     private String promptForCategory(Scanner scanner) {
@@ -123,51 +219,276 @@ public class MealManager {
         return category;
     }
 
-    // Method to add a meal to the database and the 'meals' map
-    public void addMeal(Meal meal) throws SQLException {
-        int mealId = dbManager.getNextMealId();
-        meal.setId(mealId);
-
-        String insertMealSQL = "INSERT INTO meals (meal_id, category, meal) VALUES (?, ?, ?)";
-        try (PreparedStatement psMeal = dbManager.getConnection().prepareStatement(insertMealSQL)) {
-            psMeal.setInt(1, mealId);
-            psMeal.setString(2, meal.getCategory());
-            psMeal.setString(3, meal.getName());
-            psMeal.executeUpdate();
-
-            String insertIngredientSQL = "INSERT INTO ingredients (ingredient, meal_id) VALUES (?, ?)";
-            try (PreparedStatement psIngredients = dbManager.getConnection().prepareStatement(insertIngredientSQL)) {
-                for (String ingredient : meal.getIngredients()) {
-                    psIngredients.setString(1, ingredient);
-                    psIngredients.setInt(2, mealId);
-                    psIngredients.addBatch();
+    // Method to add a meal to the database and the 'meals' map, returns the meal under its new id
+    // or null when a meal of that name already exists
+    public Meal addMeal(Meal newMeal) throws SQLException {
+        Meal meal = newMeal.withId(repository.nextMealId());
+
+        if (writeBehind != null) {
+            // Visible right away, stored by the background writer and taken out again if that fails;
+            // of two adds of one name the first into the catalog wins
+            boolean added = Metrics.time("addMeal", () -> {
+                if (addToCatalog(List.of(meal)) == 0) {
+                    return false;
                 }
-                psIngredients.executeBatch();
+                writeBehind.addMeal(meal, e -> removeFromCatalog(meal));
+                return true;
+            });
+            return added ? meal : null;
+        }
+
+        // The meal and its ingredients are stored together or not at all
+        try {
+            Metrics.run("addMeal", () -> repository.insertMeals(List.of(meal)));
+        } catch (SQLException e) {
+            // Another add of the same name got there first, here or on another instance
+            if (UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                return null;
             }
+            throw e;
         }
-        meals.put(meal.getName().toLowerCase(), meal);
-        System.out.println("The meal has been added!");
+        addToCatalog(meal);
+        return meal;
     }
 
+    // Method to make a stored meal visible to lookups, listings and planning
+    void addToCatalog(Meal meal) {
+        addToCatalog(List.of(meal));
+    }
 
-    // Method to plan meals for the week
-    public void planMeals(Scanner scanner) throws SQLException {
-        // Delete existing plan
-        try (Statement stmt = dbManager.getConnection().createStatement()) {
-            stmt.executeUpdate("DELETE FROM meal_planner WHERE day = ('Monday', 'Tuesday', 'Wednesday', 'Thursday', 'Friday', 'Saturday', 'Sunday')");
+    // Meals already in the catalog are skipped, the same meal can arrive both locally and through the catalog sync;
+    // returns how many were new
+    int addToCatalog(List<Meal> newMeals) {
+        return addToCatalog(newMeals, false);
+    }
+
+    // Method to apply meals read back from the store: an entry of the same name under another id is replaced,
+    // the store's id wins; returns how many were new or replaced
+    int syncToCatalog(List<Meal> storedMeals) {
+        return addToCatalog(storedMeals, true);
+    }
+
+    private int addToCatalog(List<Meal> newMeals, boolean replace) {
+        List<Meal> added = new ArrayList<>(newMeals.size());
+        for (Meal meal : newMeals) {
+            String key = meal.getName().toLowerCase();
+            Meal existing = meals.putIfAbsent(key, meal);
+            if (existing != null) {
+                if (!replace || existing.getId() == meal.getId()) {
+                    continue;
+                }
+                removeFromCatalog(existing);
+                if (meals.putIfAbsent(key, meal) != null) {
+                    continue;
+                }
+            }
+            mealCache.put(meal);
+            categoryIndex.add(meal);
+            ingredientIndex.add(meal);
+            nameIndex.add(meal);
+            added.add(meal);
+        }
+        // MinHash signatures of a whole batch are computed in parallel
+        similarityIndex.addAll(added);
+        return added.size();
+    }
+
+    // Method to find which of the given meal ids the catalog does not hold
+    List<Integer> missingFromCatalog(Collection<Integer> mealIds) {
+        Set<Integer> known = new HashSet<>(meals.size() * 2);
+        for (Meal meal : meals.values()) {
+            known.add(meal.getId());
+        }
+        List<Integer> missing = new ArrayList<>();
+        for (Integer mealId : mealIds) {
+            if (!known.contains(mealId)) {
+                missing.add(mealId);
+            }
+        }
+        return missing;
+    }
+
+    // Method to reject result limits the indexes cannot rank for, callers get an IllegalArgumentException
+    private static void checkLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive, got " + limit);
+        }
+    }
+
+    // Method to take a meal out of the catalog and every index, a meal of the same name added since stays
+    void removeFromCatalog(Meal meal) {
+        if (!meals.remove(meal.getName().toLowerCase(), meal)) {
+            return;
+        }
+        mealCache.remove(meal);
+        categoryIndex.remove(meal);
+        ingredientIndex.remove(meal);
+        nameIndex.remove(meal);
+        similarityIndex.remove(meal);
+    }
+
+    // Method to pick up meals other instances store in the same database, polled every intervalMillis
+    public void startCatalogSync(long intervalMillis) {
+        catalogSync.start(intervalMillis);
+    }
+
+    public CatalogSync getCatalogSync() {
+        return catalogSync;
+    }
+
+    public MealCache getMealCache() {
+        return mealCache;
+    }
+
+    // Method to build a meal from untrusted input with the same rules as the console prompts
+    public Meal buildMeal(String category, String name, Collection<String> rawIngredients) {
+        category = category.trim().toLowerCase();
+        name = name.trim().toLowerCase();
+        if (!isValidCategory(category)) {
+            throw new IllegalArgumentException("wrong meal category '" + category + "'");
+        }
+        if (isValidNameOrIngredient(name)) {
+            throw new IllegalArgumentException("wrong name format '" + name + "'");
+        }
+        LinkedHashSet<String> ingredients = new LinkedHashSet<>();
+        for (String raw : rawIngredients) {
+            String ingredient = raw.trim().toLowerCase();
+            if (isValidNameOrIngredient(ingredient)) {
+                throw new IllegalArgumentException("wrong ingredient format '" + ingredient + "'");
+            }
+            ingredients.add(ingredient);
         }
+        return createMeal(category, name, ingredients);
+    }
+
+    // Method to look up a meal of a category by name, null when there is none
+    public Meal findMeal(String category, String name) {
+        return categoryIndex.find(category, name.trim().toLowerCase());
+    }
+
+    public boolean containsMeal(String name) {
+        return meals.containsKey(name.toLowerCase());
+    }
+
+    // Method to look up a meal of any category by name, null when there is none
+    public Meal getMeal(String name) {
+        return meals.get(name.trim().toLowerCase());
+    }
 
-        String[] daysOfWeek = {"Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday"};
-        String[] mealCategories = {"breakfast", "lunch", "dinner"};
+    // Method to find meals by the ingredients they contain
+    public List<IngredientIndex.Match> searchMeals(MealQuery query, int limit) {
+        checkLimit(limit);
+        return Metrics.time("searchMeals", () -> ingredientIndex.search(query, limit));
+    }
 
-        weeklyPlan.clear(); // Clear the previous plan
+    // Method to search meals by ingredients interactively
+    public void searchMealsInteractive(Scanner scanner) {
+        System.out.println("Input the ingredients (e.g. eggs, milk, ?cheese, -nuts):");
+        MealQuery query = MealQuery.parse(scanner.nextLine());
 
-        for (String day : daysOfWeek) {
+        List<IngredientIndex.Match> matches = searchMeals(query, SEARCH_LIMIT);
+        if (matches.isEmpty()) {
+            System.out.println("No meals found.");
+            return;
+        }
+        for (IngredientIndex.Match match : matches) {
+            System.out.printf("%s (%s): %d%% of ingredients covered%n", match.getMeal().getName(),
+                    match.getMeal().getCategory(), Math.round(match.getCoverage() * 100));
+        }
+    }
+
+    // Method to complete a meal name, most planned meals first; category null means any
+    public List<Meal> completeMealName(String prefix, int limit, MealCategory category) {
+        checkLimit(limit);
+        return Metrics.time("completeMealName", () -> nameIndex.complete(prefix.trim(), limit, category));
+    }
+
+    // Method to find meals whose names are a few typos away from the given one; category null means any
+    public List<NameIndex.Match> suggestMealNames(String name, int limit, MealCategory category) {
+        checkLimit(limit);
+        return Metrics.time("suggestMealNames", () -> nameIndex.closest(name.trim(), MAX_TYPOS, limit, category));
+    }
+
+    // Method to look up meals by the start of their name, falling back to typo-tolerant matching
+    public void findMealsInteractive(Scanner scanner) {
+        System.out.println("Input the beginning of a meal name:");
+        String prefix = scanner.nextLine().trim().toLowerCase();
+
+        List<Meal> completions = completeMealName(prefix, COMPLETION_LIMIT, null);
+        if (!completions.isEmpty()) {
+            for (Meal meal : completions) {
+                System.out.printf("%s (%s)%n", meal.getName(), meal.getCategory());
+            }
+            return;
+        }
+        List<NameIndex.Match> suggestions = suggestMealNames(prefix, COMPLETION_LIMIT, null);
+        if (suggestions.isEmpty()) {
+            System.out.println("No meals found.");
+            return;
+        }
+        System.out.println("No meal names start with '" + prefix + "'. Did you mean:");
+        for (NameIndex.Match match : suggestions) {
+            System.out.printf("%s (%s)%n", match.getMeal().getName(), match.getMeal().getCategory());
+        }
+    }
+
+    // Method to find meals with the most similar ingredients, as alternatives to a meal; category null means any
+    public List<SimilarityIndex.Match> similarMeals(Meal meal, int limit, MealCategory category) {
+        checkLimit(limit);
+        return Metrics.time("similarMeals", () -> similarityIndex.similar(meal, limit, category));
+    }
+
+    // Method to list alternatives to a meal interactively, from the same category
+    public void similarMealsInteractive(Scanner scanner) {
+        System.out.println("Input the meal's name:");
+        Meal meal = getMeal(scanner.nextLine());
+        if (meal == null) {
+            System.out.println("This meal doesn’t exist.");
+            return;
+        }
+        List<SimilarityIndex.Match> matches = similarMeals(meal, SEARCH_LIMIT, meal.getCategory());
+        if (matches.isEmpty()) {
+            System.out.println("No similar meals found.");
+            return;
+        }
+        for (SimilarityIndex.Match match : matches) {
+            System.out.printf("%s: %d%% of ingredients in common%n", match.getMeal().getName(),
+                    Math.round(match.getSimilarity() * 100));
+        }
+    }
+
+    // Method to bulk import meals from a CSV or JSONL file
+    public void importMealsInteractive(Scanner scanner) throws SQLException {
+        System.out.println("Input a filename:");
+        String filename = scanner.nextLine().trim();
+
+        // Closed by hand, the import throws two kinds of checked exceptions
+        Metrics.Span span = Metrics.span("importMeals");
+        try {
+            MealImporter.Report report = new MealImporter(repository, this).importFile(Path.of(filename));
+            System.out.println(report);
+            for (String rejection : report.getRejections()) {
+                System.out.println(rejection);
+            }
+        } catch (IOException e) {
+            System.out.println("An error occurred while reading the file.");
+            e.printStackTrace();
+        } finally {
+            span.close();
+        }
+    }
+
+
+    // Method to plan meals for the week
+    public void planMeals(Scanner scanner) throws SQLException {
+        WeeklyPlan weeklyPlan = new WeeklyPlan();
+
+        for (String day : WeeklyPlan.DAYS) {
             System.out.println(day);
             Map<String, Meal> mealsForDay = new LinkedHashMap<>();
 
-            for (String category : mealCategories) {
-                List<Meal> categoryMeals = getMealsByCategory(category);
+            for (String category : WeeklyPlan.CATEGORIES) {
+                Collection<Meal> categoryMeals = getMealsByCategory(category);
 
                 if (categoryMeals.isEmpty()) {
                     System.out.println("No meals available for category: " + category);
@@ -175,7 +496,6 @@ public class MealManager {
                 }
 
                 // Print meals in alphabetical order
-                categoryMeals.sort(Comparator.comparing(Meal::getName));
                 for (Meal meal : categoryMeals) {
                     System.out.println(meal.getName());
                 }
@@ -183,70 +503,144 @@ public class MealManager {
                 System.out.printf("Choose the %s for %s from the list above:%n", category, day);
                 String chosenMealName = scanner.nextLine().trim().toLowerCase();
 
-                Meal chosenMeal = null;
                 while (true) {
-                    for (Meal meal : categoryMeals) {
-                        if (meal.getName().equalsIgnoreCase(chosenMealName)) {
-                            chosenMeal = meal;
-                            break;
-                        }
-                    }
+                    Meal chosenMeal = categoryIndex.find(category, chosenMealName);
 
                     if (chosenMeal != null) {
                         mealsForDay.put(category, chosenMeal);
                         break;
                     } else {
                         System.out.println("This meal doesn’t exist. Choose a meal from the list above.");
+                        printSuggestions(chosenMealName, category);
                         chosenMealName = scanner.nextLine().trim().toLowerCase();
                     }
                 }
             }
 
-            weeklyPlan.put(day, mealsForDay);
+            weeklyPlan.asMap().put(day, mealsForDay);
             System.out.printf("Yeah! We planned the meals for %s.%n%n", day);
         }
 
-        // Save the plan to the database
-        savePlanToDatabase(weeklyPlan);
+        // Save the plan to the database, replacing the stored one
+        defaultSession().save(weeklyPlan);
 
         // Print the plan
-        printWeeklyPlan(weeklyPlan);
+        printWeeklyPlan(weeklyPlan.asMap());
     }
 
-    // Method to get meals by category
-    private List<Meal> getMealsByCategory(String category) {
-        List<Meal> categoryMeals = new ArrayList<>();
-        for (Meal meal : meals.values()) {
-            if (meal.getCategory().equals(category)) {
-                categoryMeals.add(meal);
+    // Method to point out meals of the category close to a mistyped name
+    private void printSuggestions(String name, String category) {
+        List<NameIndex.Match> suggestions = suggestMealNames(name, SUGGESTION_LIMIT, MealCategory.of(category));
+        if (!suggestions.isEmpty()) {
+            StringJoiner names = new StringJoiner(", ");
+            for (NameIndex.Match match : suggestions) {
+                names.add(match.getMeal().getName());
             }
+            System.out.println("Did you mean: " + names + "?");
         }
-        return categoryMeals;
     }
 
-    // Method to save the weekly plan to the database
-    private void savePlanToDatabase(Map<String, Map<String, Meal>> weeklyPlan) throws SQLException {
-        String insertSQL = "INSERT INTO meal_planner (day, meal_category, meal_id) VALUES (?, ?, ?)";
+    // Method to get the plan session of a user for a week, sessions share this catalog
+    public PlanSession session(String user, String week) {
+        checkPlanKey(user, week);
+        String key = user + '\u0000' + week;
+        synchronized (sessions) {
+            PlanSession session = sessions.get(key);
+            if (session == null) {
+                session = newSession(user, week, key);
+                sessions.put(key, session);
+                evictIdleSessions();
+            }
+            return session;
+        }
+    }
 
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(insertSQL)) {
-            for (Map.Entry<String, Map<String, Meal>> dayEntry : weeklyPlan.entrySet()) {
-                String day = dayEntry.getKey();
-                Map<String, Meal> mealsForDay = dayEntry.getValue();
+    // Method to get a plan session only to read the stored plan, a session not in memory yet is not kept
+    public PlanSession readSession(String user, String week) {
+        checkPlanKey(user, week);
+        String key = user + '\u0000' + week;
+        synchronized (sessions) {
+            PlanSession session = sessions.get(key);
+            if (session != null) {
+                return session;
+            }
+        }
+        return newSession(user, week, key);
+    }
 
-                for (Map.Entry<String, Meal> mealEntry : mealsForDay.entrySet()) {
-                    String category = mealEntry.getKey();
-                    Meal meal = mealEntry.getValue();
+    private PlanSession newSession(String user, String week, String key) {
+        return new PlanSession(user, week, repository, mealCache, planGenerator, planLocks.get(key), writeBehind, nameIndex);
+    }
 
-                    pstmt.setString(1, day);
-                    pstmt.setString(2, category);
-                    pstmt.setInt(3, meal.getId());
-                    pstmt.addBatch();
-                }
+    // Caller holds sessions; a session with saves still queued stays, a new one would not wait for them on load
+    private void evictIdleSessions() {
+        Iterator<PlanSession> eldest = sessions.values().iterator();
+        while (sessions.size() > MAX_SESSIONS && eldest.hasNext()) {
+            if (!eldest.next().hasQueuedSaves()) {
+                eldest.remove();
             }
-            pstmt.executeBatch();
         }
     }
 
+    private static void checkPlanKey(String user, String week) {
+        if (user.isEmpty() || user.length() > MAX_USER_LENGTH) {
+            throw new IllegalArgumentException("user must be 1 to " + MAX_USER_LENGTH + " characters");
+        }
+        if (week.isEmpty() || week.length() > MAX_WEEK_LENGTH) {
+            throw new IllegalArgumentException("week must be 1 to " + MAX_WEEK_LENGTH + " characters");
+        }
+    }
+
+    // Method to drop a finished session, its stored plan stays in the database
+    public void closeSession(String user, String week) {
+        synchronized (sessions) {
+            sessions.remove(user + '\u0000' + week);
+        }
+    }
+
+    private PlanSession defaultSession() {
+        return session(DEFAULT_USER, DEFAULT_WEEK);
+    }
+
+    // Method to generate a plan without console input
+    public WeeklyPlan generatePlan(PlanRequest request) {
+        return Metrics.time("generatePlan", () -> planGenerator.generate(request));
+    }
+
+    // Method to generate many plans in parallel
+    public BatchPlanner.Result generatePlans(List<PlanRequest> requests, int parallelism) throws InterruptedException {
+        return Metrics.time("generatePlans", () -> new BatchPlanner(planGenerator, parallelism).planAll(requests));
+    }
+
+    // Method to find the cheapest plan meeting the targets within the time budget, using every core
+    public PlanOptimizer.Result optimizePlan(PlanRequest request, PlanTargets targets, Duration timeBudget)
+            throws InterruptedException {
+        return Metrics.time("optimizePlan", () -> planOptimizer.optimize(request, targets, timeBudget));
+    }
+
+    // Method to store the nutrition and price of one portion of an ingredient
+    public void setIngredientNutrition(String ingredient, Nutrition nutrition) throws SQLException {
+        String name = ingredient.trim().toLowerCase();
+        Metrics.run("setIngredientNutrition", () -> {
+            repository.saveNutrition(name, nutrition);
+            nutritionTable.put(name, nutrition);
+        });
+    }
+
+    public NutritionTable getNutritionTable() {
+        return nutritionTable;
+    }
+
+    // Method to store a generated plan as the console's weekly plan
+    public void savePlan(WeeklyPlan plan) throws SQLException {
+        Metrics.run("savePlan", () -> defaultSession().save(plan));
+    }
+
+    // Method to get meals by category, already sorted by name
+    public Collection<Meal> getMealsByCategory(String category) {
+        return Metrics.time("getMealsByCategory", () -> categoryIndex.list(category));
+    }
+
     // Method to print the weekly plan
     private void printWeeklyPlan(Map<String, Map<String, Meal>> weeklyPlan) {
         for (Map.Entry<String, Map<String, Meal>> dayEntry : weeklyPlan.entrySet()) {
@@ -266,77 +660,19 @@ public class MealManager {
 
     // Method to list the stored plan
     public void listPlan() throws SQLException {
-        String query = "SELECT * FROM meal_planner ORDER BY day, meal_category";
-        Map<String, Map<String, Meal>> weeklyPlan = new LinkedHashMap<>();
-
-        try (Statement stmt = dbManager.getConnection().createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
-
-            if (!rs.isBeforeFirst()) {
-                System.out.println("Database does not contain any meal plans.");
-                return;
-            }
-
-            while (rs.next()) {
-                String day = rs.getString("day");
-                String category = rs.getString("meal_category");
-                int mealId = rs.getInt("meal_id");
-
-                Meal meal = getMealById(mealId);
-                if (meal == null) {
-                    continue;
-                }
-
-                weeklyPlan.computeIfAbsent(day, k -> new LinkedHashMap<>()).put(category, meal);
-            }
+        WeeklyPlan storedPlan = loadPlan();
+        if (storedPlan.size() == 0) {
+            System.out.println("Database does not contain any meal plans.");
+            return;
         }
 
         // Print the plan
-        printWeeklyPlan(weeklyPlan);
-    }
-
-    // Helper method to get a meal by its ID
-    private Meal getMealById(int mealId) throws SQLException {
-        String query = "SELECT * FROM meals WHERE meal_id = ?";
-        try (PreparedStatement pstmt = dbManager.getConnection().prepareStatement(query)) {
-            pstmt.setInt(1, mealId);
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    String category = rs.getString("category");
-                    String name = rs.getString("meal");
-                    int id = rs.getInt("meal_id");
-
-                    LinkedHashSet<String> ingredients = new LinkedHashSet<>();
-                    String ingredientsQuery = "SELECT ingredient FROM ingredients WHERE meal_id = ?";
-                    try (PreparedStatement psIngredients = dbManager.getConnection().prepareStatement(ingredientsQuery)) {
-                        psIngredients.setInt(1, id);
-                        try (ResultSet rsIngredients = psIngredients.executeQuery()) {
-                            while (rsIngredients.next()) {
-                                ingredients.add(rsIngredients.getString("ingredient"));
-                            }
-                        }
-                    }
+        printWeeklyPlan(storedPlan.asMap());
+    }
 
-                    Meal meal;
-                    switch (category) {
-                        case "breakfast":
-                            meal = new Breakfast(name, ingredients);
-                            break;
-                        case "lunch":
-                            meal = new Lunch(name, ingredients);
-                            break;
-                        case "dinner":
-                            meal = new Dinner(name, ingredients);
-                            break;
-                        default:
-                            return null;
-                    }
-                    meal.setId(id);
-                    return meal;
-                }
-            }
-        }
-        return null;
+    // Method to read the console's stored plan, empty when nothing has been planned
+    public WeeklyPlan loadPlan() throws SQLException {
+        return Metrics.time("loadPlan", () -> defaultSession().load());
     }
 
     // Helper method to capitalize the first letter of a string
@@ -348,57 +684,56 @@ public class MealManager {
 
     // Method to validate meal categories
     public boolean isValidCategory(String category) {
-        return category.equals("breakfast") || category.equals("lunch") || category.equals("dinner");
+        return MealCategory.of(category) != null;
     }
 
     // Method to validate meal names and ingredients
     public boolean isValidNameOrIngredient(String input) {
-        Pattern pattern = Pattern.compile("^[a-zA-Z ]+$");
-        Matcher matcher = pattern.matcher(input);
-        return !matcher.matches();
+        return !IngredientParser.isLettersOrSpaces(input);
     }
 
     // Method to validate ingredients input
     public boolean isValidIngredientsInput(String input) {
-        String[] ingredients = input.split(",\\s*");
-        for (String ingredient : ingredients) {
-            if (isValidNameOrIngredient(ingredient)) {
-                return false;
-            }
-        }
-        return true;
+        return IngredientParser.parse(input).isValid();
     }
 
     public void saveShoppingList(Scanner scanner) {
-        if (weeklyPlan.isEmpty()) {
+        PlanSession session = defaultSession();
+        if (session.getPlan().size() == 0) {
             System.out.println("Unable to save. Plan your meals first.");
             return;
         }
 
-        Map<String, Integer> shoppingList = new HashMap<>();
-        for (Map<String, Meal> dayMeals : weeklyPlan.values()) {
-            for (Meal meal : dayMeals.values()) {
-                for (String ingredient : meal.getIngredients()) {
-                    shoppingList.put(ingredient, shoppingList.getOrDefault(ingredient, 0) + 1);
-                }
-            }
-        }
+        ShoppingList shoppingList = session.shoppingList();
 
         System.out.println("Input a filename:");
         String filename = scanner.nextLine().trim();
 
-        try (FileWriter writer = new FileWriter(filename)) {
-            for (Map.Entry<String, Integer> entry : shoppingList.entrySet()) {
-                if (entry.getValue() > 1) {
-                    writer.write(entry.getKey() + " x" + entry.getValue() + "\n");
-                } else {
-                    writer.write(entry.getKey() + "\n");
-                }
-            }
+        try {
+            ShoppingListExporter.Report report = new ShoppingListExporter()
+                    .export(shoppingList, Path.of(filename), ShoppingListExporter.Format.forFile(filename));
+            System.err.println(report);
             System.out.println("Saved!");
         } catch (IOException e) {
             System.out.println("An error occurred while saving the file.");
             e.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    // Method to wait until every write queued so far is stored or has failed, a no-op in synchronous mode
+    public void flushWrites() throws InterruptedException {
+        if (writeBehind != null) {
+            writeBehind.flush();
+        }
+    }
+
+    // Stop the catalog sync and the optimizer's workers and flush queued writes, the flush is a no-op in synchronous mode
+    @Override
+    public void close() {
+        catalogSync.close();
+        planOptimizer.close();
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+    }
+}
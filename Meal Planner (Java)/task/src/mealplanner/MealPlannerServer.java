@@ -0,0 +1,421 @@
+package mealplanner;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// JSON over HTTP on top of MealManager, using the JDK's built-in server
+public class MealPlannerServer {
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int DEFAULT_COMPLETION_LIMIT = 10;
+
+    private final MealManager mealManager;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+
+    public MealPlannerServer(MealManager mealManager, int port) throws IOException {
+        this.mealManager = mealManager;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/meals", exchange -> handle(exchange, this::routeMeals));
+        server.createContext("/plans", exchange -> handle(exchange, this::routePlans));
+        server.createContext("/metrics", exchange -> handle(exchange, this::metrics));
+    }
+
+    // Virtual threads when the runtime has them (JDK 21+), a cached pool on older JDKs
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public Map<String, LatencyHistogram> getLatencies() {
+        return latencies;
+    }
+
+    private interface Route {
+        Response handle(Request request) throws SQLException, IOException;
+    }
+
+    // Dispatch, map errors to status codes and time the request per endpoint
+    private void handle(HttpExchange exchange, Route route) throws IOException {
+        long start = System.nanoTime();
+        Request request = new Request(exchange);
+        Response response;
+        // The span counts the SQL statements each request runs
+        try (Metrics.Span span = Metrics.span("http")) {
+            try {
+                response = route.handle(request);
+            } catch (IllegalArgumentException e) {
+                response = Response.error(400, e.getMessage());
+            } catch (SQLException e) {
+                e.printStackTrace();
+                response = Response.error(500, "database error");
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                response = Response.error(500, "internal error");
+            }
+            span.rename("http " + request.method + " " + request.endpoint);
+        }
+
+        byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+        latencies.computeIfAbsent(request.method + " " + request.endpoint, k -> new LatencyHistogram())
+                .recordNanos(System.nanoTime() - start);
+    }
+
+    // GET /meals?category=, POST /meals, GET /meals/search?q=eggs,milk,-nuts&limit=,
+    // GET /meals/complete?prefix=&category=&limit= (typo suggestions when nothing starts with the prefix),
+    // GET /meals/similar?name=&category=&limit=
+    private Response routeMeals(Request request) throws SQLException {
+        List<String> path = request.path;
+        if (path.size() == 1 && request.method.equals("GET")) {
+            request.endpoint = "/meals";
+            String category = request.query.getOrDefault("category", "");
+            if (!mealManager.isValidCategory(category)) {
+                throw new IllegalArgumentException("category must be one of breakfast, lunch, dinner");
+            }
+            return Response.ok(mealsJson(mealManager.getMealsByCategory(category)));
+        }
+        if (path.size() == 1 && request.method.equals("POST")) {
+            request.endpoint = "/meals";
+            Map<?, ?> body = request.jsonObject();
+            if (!(body.get("category") instanceof String category) || !(body.get("name") instanceof String name)
+                    || !(body.get("ingredients") instanceof List<?> ingredientValues)) {
+                throw new IllegalArgumentException("expected string 'category', 'name' and array 'ingredients'");
+            }
+            List<String> ingredients = new ArrayList<>();
+            for (Object value : ingredientValues) {
+                ingredients.add(String.valueOf(value));
+            }
+            Meal meal = mealManager.buildMeal(category, name, ingredients);
+            // Checked again by addMeal, a concurrent add of the same name can get there first
+            Meal added = mealManager.containsMeal(meal.getName()) ? null : mealManager.addMeal(meal);
+            if (added == null) {
+                return Response.error(409, "meal '" + meal.getName() + "' already exists");
+            }
+            return new Response(201, mealJson(added));
+        }
+        if (path.size() == 2 && path.get(1).equals("complete") && request.method.equals("GET")) {
+            request.endpoint = "/meals/complete";
+            String prefix = request.query.getOrDefault("prefix", "");
+            String category = request.query.get("category");
+            MealCategory mealCategory = category == null ? null : MealCategory.of(category);
+            if (category != null && mealCategory == null) {
+                throw new IllegalArgumentException("category must be one of breakfast, lunch, dinner");
+            }
+            int limit = Integer.parseInt(request.query.getOrDefault("limit", String.valueOf(DEFAULT_COMPLETION_LIMIT)));
+            List<Meal> completions = mealManager.completeMealName(prefix, limit, mealCategory);
+            StringBuilder json = new StringBuilder("{\"completions\": ").append(mealsJson(completions))
+                    .append(", \"suggestions\": [");
+            if (completions.isEmpty() && !prefix.isBlank()) {
+                List<NameIndex.Match> suggestions = mealManager.suggestMealNames(prefix, limit, mealCategory);
+                for (int i = 0; i < suggestions.size(); i++) {
+                    if (i > 0) {
+                        json.append(", ");
+                    }
+                    json.append("{\"meal\": ").append(mealJson(suggestions.get(i).getMeal()))
+                            .append(", \"distance\": ").append(suggestions.get(i).getDistance()).append('}');
+                }
+            }
+            return Response.ok(json.append("]}").toString());
+        }
+        if (path.size() == 2 && path.get(1).equals("similar") && request.method.equals("GET")) {
+            request.endpoint = "/meals/similar";
+            String name = request.query.getOrDefault("name", "");
+            Meal meal = mealManager.getMeal(name);
+            if (meal == null) {
+                return Response.error(404, "no meal named " + name);
+            }
+            String category = request.query.get("category");
+            MealCategory mealCategory = category == null ? null : MealCategory.of(category);
+            if (category != null && mealCategory == null) {
+                throw new IllegalArgumentException("category must be one of breakfast, lunch, dinner");
+            }
+            int limit = Integer.parseInt(request.query.getOrDefault("limit", String.valueOf(DEFAULT_COMPLETION_LIMIT)));
+            return Response.ok(similarJson(mealManager.similarMeals(meal, limit, mealCategory)));
+        }
+        if (path.size() == 2 && path.get(1).equals("search") && request.method.equals("GET")) {
+            request.endpoint = "/meals/search";
+            MealQuery query = MealQuery.parse(request.query.getOrDefault("q", ""));
+            int limit = Integer.parseInt(request.query.getOrDefault("limit", String.valueOf(DEFAULT_SEARCH_LIMIT)));
+            StringBuilder json = new StringBuilder("[");
+            for (IngredientIndex.Match match : mealManager.searchMeals(query, limit)) {
+                if (json.length() > 1) {
+                    json.append(", ");
+                }
+                json.append("{\"meal\": ").append(mealJson(match.getMeal()))
+                        .append(", \"coverage\": ").append(match.getCoverage()).append('}');
+            }
+            return Response.ok(json.append(']').toString());
+        }
+        return Response.error(404, "not found");
+    }
+
+    // POST /plans/{user}/{week} (body: plan request), GET /plans/{user}/{week}, GET /plans/{user}/{week}/shopping-list,
+    // PUT /plans/{user}/{week}/{day}/{category}, GET /plans/{user}/{week}/{day}/{category}/alternatives?limit=
+    private Response routePlans(Request request) throws SQLException {
+        List<String> path = request.path;
+        if (path.size() < 3) {
+            return Response.error(404, "not found");
+        }
+        // Reads neither create a session nor a stored plan
+        PlanSession session = request.method.equals("GET")
+                ? mealManager.readSession(path.get(1), path.get(2))
+                : mealManager.session(path.get(1), path.get(2));
+
+        if (path.size() == 3 && request.method.equals("POST")) {
+            request.endpoint = "/plans/{user}/{week}";
+            WeeklyPlan plan = session.generate(planRequest(request.body.isBlank() ? Map.of() : request.jsonObject()));
+            session.save(plan);
+            return new Response(201, planJson(plan));
+        }
+        if (path.size() == 3 && request.method.equals("GET")) {
+            request.endpoint = "/plans/{user}/{week}";
+            WeeklyPlan plan = session.load();
+            return plan.size() == 0 ? Response.error(404, "no plan stored") : Response.ok(planJson(plan));
+        }
+        if (path.size() == 5 && request.method.equals("PUT")) {
+            // PUT /plans/{user}/{week}/{day}/{category} {"meal": "..."} swaps one slot
+            request.endpoint = "/plans/{user}/{week}/{day}/{category}";
+            String category = path.get(4).toLowerCase();
+            Object name = request.jsonObject().get("meal");
+            Meal meal = name instanceof String mealName ? mealManager.findMeal(category, mealName) : null;
+            if (meal == null) {
+                return Response.error(404, "no " + category + " named " + name);
+            }
+            if (session.getPlan().size() == 0) {
+                session.load();
+            }
+            session.replaceSlot(capitalize(path.get(3)), category, meal);
+            return Response.ok(planJson(session.getPlan()));
+        }
+        if (path.size() == 6 && path.get(5).equals("alternatives") && request.method.equals("GET")) {
+            // Meals of the slot's category closest to the planned one, to offer when the user rejects it
+            request.endpoint = "/plans/{user}/{week}/{day}/{category}/alternatives";
+            if (session.getPlan().size() == 0) {
+                session.load();
+            }
+            String category = path.get(4).toLowerCase();
+            Meal planned = session.getPlan().get(capitalize(path.get(3)), category);
+            if (planned == null) {
+                return Response.error(404, "no meal planned for " + path.get(3) + " " + category);
+            }
+            int limit = Integer.parseInt(request.query.getOrDefault("limit", String.valueOf(DEFAULT_COMPLETION_LIMIT)));
+            return Response.ok(similarJson(mealManager.similarMeals(planned, limit, planned.getCategory())));
+        }
+        if (path.size() == 4 && path.get(3).equals("shopping-list") && request.method.equals("GET")) {
+            request.endpoint = "/plans/{user}/{week}/shopping-list";
+            if (session.getPlan().size() == 0) {
+                session.load();
+            }
+            return Response.ok(shoppingListJson(session.shoppingList()));
+        }
+        return Response.error(404, "not found");
+    }
+
+    private Response metrics(Request request) {
+        request.endpoint = "/metrics";
+        StringBuilder json = new StringBuilder("{\"endpoints\": {");
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(latencies).entrySet()) {
+            if (json.charAt(json.length() - 1) != '{') {
+                json.append(", ");
+            }
+            json.append(Json.quote(entry.getKey())).append(": ").append(entry.getValue().toJson());
+        }
+        json.append("}, \"application\": ").append(Metrics.toJson());
+        return Response.ok(json.append('}').toString());
+    }
+
+    private static PlanRequest planRequest(Map<?, ?> body) {
+        PlanRequest planRequest = new PlanRequest();
+        if (body.get("seed") instanceof Double seed) {
+            planRequest.setSeed(seed.longValue());
+        }
+        if (body.get("noRepeatDays") instanceof Double days) {
+            planRequest.setNoRepeatDays(days.intValue());
+        }
+        if (body.get("require") instanceof List<?> required) {
+            required.forEach(ingredient -> planRequest.requireIngredient(String.valueOf(ingredient)));
+        }
+        if (body.get("exclude") instanceof List<?> excluded) {
+            excluded.forEach(ingredient -> planRequest.excludeIngredient(String.valueOf(ingredient)));
+        }
+        if (body.get("quotas") instanceof Map<?, ?> quotas) {
+            quotas.forEach((category, quota) -> {
+                if (!(quota instanceof Number number)) {
+                    throw new IllegalArgumentException("quota of " + category + " must be a number");
+                }
+                planRequest.setCategoryQuota(String.valueOf(category), number.intValue());
+            });
+        }
+        return planRequest;
+    }
+
+    // "monday" -> "Monday", the form plans store days in
+    private static String capitalize(String day) {
+        return day.isEmpty() ? day : Character.toUpperCase(day.charAt(0)) + day.substring(1).toLowerCase();
+    }
+
+    private static String similarJson(List<SimilarityIndex.Match> matches) {
+        StringBuilder json = new StringBuilder("[");
+        for (SimilarityIndex.Match match : matches) {
+            if (json.length() > 1) {
+                json.append(", ");
+            }
+            json.append("{\"meal\": ").append(mealJson(match.getMeal()))
+                    .append(", \"similarity\": ").append(match.getSimilarity()).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    private static String mealJson(Meal meal) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"id\": ").append(meal.getId())
+                .append(", \"category\": ").append(Json.quote(meal.getCategory().label()))
+                .append(", \"name\": ").append(Json.quote(meal.getName()))
+                .append(", \"ingredients\": [");
+        IngredientDictionary dictionary = IngredientDictionary.shared();
+        for (int i = 0; i < meal.ingredientCount(); i++) {
+            if (i > 0) {
+                json.append(", ");
+            }
+            json.append(Json.quote(dictionary.name(meal.ingredientId(i))));
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String mealsJson(Collection<Meal> meals) {
+        StringBuilder json = new StringBuilder("[");
+        for (Meal meal : meals) {
+            if (json.length() > 1) {
+                json.append(", ");
+            }
+            json.append(mealJson(meal));
+        }
+        return json.append(']').toString();
+    }
+
+    private static String planJson(WeeklyPlan plan) {
+        StringBuilder json = new StringBuilder("{");
+        for (String day : WeeklyPlan.DAYS) {
+            if (json.length() > 1) {
+                json.append(", ");
+            }
+            json.append(Json.quote(day)).append(": {");
+            boolean first = true;
+            for (String category : WeeklyPlan.CATEGORIES) {
+                Meal meal = plan.get(day, category);
+                if (meal != null) {
+                    json.append(first ? "" : ", ").append(Json.quote(category)).append(": ").append(mealJson(meal));
+                    first = false;
+                }
+            }
+            json.append('}');
+        }
+        return json.append('}').toString();
+    }
+
+    private static String shoppingListJson(ShoppingList shoppingList) {
+        StringBuilder json = new StringBuilder("[");
+        for (Map.Entry<String, TreeMap<String, Double>> item : shoppingList.getItems().entrySet()) {
+            for (Map.Entry<String, Double> quantity : item.getValue().entrySet()) {
+                if (json.length() > 1) {
+                    json.append(", ");
+                }
+                json.append("{\"ingredient\": ").append(Json.quote(item.getKey()))
+                        .append(", \"quantity\": ").append(quantity.getValue())
+                        .append(", \"unit\": ").append(Json.quote(quantity.getKey())).append('}');
+            }
+        }
+        return json.append(']').toString();
+    }
+
+    private static class Request {
+        private final String method;
+        private final List<String> path = new ArrayList<>();
+        private final Map<String, String> query = new HashMap<>();
+        private final String body;
+        // Route template the latency is recorded under, so user names don't create new series
+        private String endpoint = "unmatched";
+
+        Request(HttpExchange exchange) throws IOException {
+            method = exchange.getRequestMethod().toUpperCase();
+            for (String segment : exchange.getRequestURI().getPath().split("/")) {
+                if (!segment.isEmpty()) {
+                    path.add(URLDecoder.decode(segment, StandardCharsets.UTF_8));
+                }
+            }
+            String rawQuery = exchange.getRequestURI().getRawQuery();
+            if (rawQuery != null) {
+                for (String pair : rawQuery.split("&")) {
+                    int eq = pair.indexOf('=');
+                    if (eq > 0) {
+                        query.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                                URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+                    }
+                }
+            }
+            try (InputStream in = exchange.getRequestBody()) {
+                body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+
+        Map<?, ?> jsonObject() {
+            if (!(Json.parse(body) instanceof Map<?, ?> object)) {
+                throw new IllegalArgumentException("expected a JSON object");
+            }
+            return object;
+        }
+    }
+
+    private static class Response {
+        private final int status;
+        private final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+
+        static Response ok(String body) {
+            return new Response(200, body);
+        }
+
+        static Response error(int status, String message) {
+            return new Response(status, "{\"error\": " + Json.quote(message == null ? "" : message) + "}");
+        }
+    }
+}
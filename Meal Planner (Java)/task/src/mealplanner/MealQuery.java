@@ -0,0 +1,63 @@
+package mealplanner;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+public class MealQuery {
+    private final Set<String> allOf = new LinkedHashSet<>();
+    private final Set<String> anyOf = new LinkedHashSet<>();
+    private final Set<String> noneOf = new LinkedHashSet<>();
+
+    // Parse "eggs, milk, ?cheese, -nuts": plain terms are required, '?' terms optional (at least one), '-' terms excluded
+    public static MealQuery parse(String input) {
+        MealQuery query = new MealQuery();
+        for (String token : input.split(",")) {
+            String term = token.trim().toLowerCase();
+            if (term.startsWith("-")) {
+                query.noneOf(term.substring(1).trim());
+            } else if (term.startsWith("?")) {
+                query.anyOf(term.substring(1).trim());
+            } else if (!term.isEmpty()) {
+                query.allOf(term);
+            }
+        }
+        return query;
+    }
+
+    public MealQuery allOf(String ingredient) {
+        if (!ingredient.isEmpty()) {
+            allOf.add(ingredient);
+        }
+        return this;
+    }
+
+    public MealQuery anyOf(String ingredient) {
+        if (!ingredient.isEmpty()) {
+            anyOf.add(ingredient);
+        }
+        return this;
+    }
+
+    public MealQuery noneOf(String ingredient) {
+        if (!ingredient.isEmpty()) {
+            noneOf.add(ingredient);
+        }
+        return this;
+    }
+
+    public Set<String> getAllOf() {
+        return allOf;
+    }
+
+    public Set<String> getAnyOf() {
+        return anyOf;
+    }
+
+    public Set<String> getNoneOf() {
+        return noneOf;
+    }
+
+    public boolean isEmpty() {
+        return allOf.isEmpty() && anyOf.isEmpty() && noneOf.isEmpty();
+    }
+}
@@ -0,0 +1,69 @@
+package mealplanner;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Storage of meals, ingredient nutrition and weekly plans behind MealManager.
+// Implementations are thread-safe; failures surface as SQLException whatever the backing store is.
+public interface MealRepository extends AutoCloseable {
+    // Id for the next new meal, never handed out twice
+    int nextMealId();
+
+    List<Meal> loadAllMeals() throws SQLException;
+
+    // Rows read and time taken by the latest loadAllMeals, null before the first
+    MealCatalogLoader.LoadStats lastLoadStats();
+
+    // The given meals, unknown ids are skipped
+    List<Meal> loadMeals(Collection<Integer> mealIds) throws SQLException;
+
+    // Store meals that already have ids, all of them or none
+    void insertMeals(List<Meal> meals) throws SQLException;
+
+    // Version of the stored catalog, used to validate catalog snapshots; null when the store keeps no version
+    CatalogSnapshot.Stamp catalogStamp() throws SQLException;
+
+    Map<String, Nutrition> loadNutrition() throws SQLException;
+
+    void saveNutrition(String ingredient, Nutrition nutrition) throws SQLException;
+
+    // Id of the plan of a user for a week, created on first use
+    int planId(String user, String week) throws SQLException;
+
+    // Id of the plan of a user for a week, -1 when it has never been created
+    int findPlanId(String user, String week) throws SQLException;
+
+    // The stored slots of a plan ordered by day and category, empty when it has never been saved
+    List<PlanStore.Slot> loadPlan(int planId) throws SQLException;
+
+    // Replace the stored week of a plan
+    void savePlan(int planId, Map<String, Map<String, Meal>> weeklyPlan) throws SQLException;
+
+    // Replace the meal of one slot
+    void saveSlot(int planId, String day, String category, int mealId) throws SQLException;
+
+    // How often each meal has been planned, by meal id; meals never planned are left out
+    Map<Integer, Integer> loadPlanCounts() throws SQLException;
+
+    // Id of the newest entry in the feed of stored meals, 0 when the store keeps no feed
+    long latestChangeId() throws SQLException;
+
+    // Feed entries after the given id in id order, used by CatalogSync to pick up meals other instances stored
+    List<ChangeFeed.Change> changesSince(long afterId, int limit) throws SQLException;
+
+    // Feed entries with the given ids, ids not committed (yet) are left out; used to recheck skipped gaps
+    List<ChangeFeed.Change> changes(Collection<Long> changeIds) throws SQLException;
+
+    // Ids of every stored meal, used to reconcile a catalog with the store
+    List<Integer> loadMealIds() throws SQLException;
+
+    // Store queued meals, plan saves and slot replacements atomically, meals first so the plans can reference them.
+    // Slots are replaced after the plans and belong to plans that are not saved whole in the same write.
+    void write(List<Meal> meals, Map<Integer, Map<String, Map<String, Meal>>> plans, Map<Integer, List<PlanStore.Slot>> slots)
+            throws SQLException;
+
+    @Override
+    void close();
+}
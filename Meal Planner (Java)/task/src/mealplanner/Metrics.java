@@ -0,0 +1,234 @@
+package mealplanner;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+// Process-wide counters, latency timers and JFR events for SQL statements and MealManager operations
+public final class Metrics {
+    // Queries run by one top-level operation before it is reported as a likely N+1 pattern
+    private static final int QUERY_WARN_THRESHOLD = Integer.getInteger("mealplanner.metrics.queryWarnThreshold", 50);
+    private static final int SQL_KEY_LENGTH = 100;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> TIMERS = new ConcurrentHashMap<>();
+    private static final Map<String, Supplier<Object>> GAUGES = new ConcurrentHashMap<>();
+    // Timer and query counter of each operation, looked up once per name instead of on every span
+    private static final Map<String, OperationStats> OPERATIONS = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Span> CURRENT_SPAN = new ThreadLocal<>();
+    private static ScheduledExecutorService reporter;
+
+    private Metrics() {
+    }
+
+    public static void increment(String name) {
+        add(name, 1);
+    }
+
+    public static void add(String name, long delta) {
+        COUNTERS.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+    }
+
+    public static LatencyHistogram timer(String name) {
+        return TIMERS.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+
+    // A value read at report time, such as pool usage
+    public static void gauge(String name, Supplier<Object> supplier) {
+        GAUGES.put(name, supplier);
+    }
+
+    // Body of a timed operation, E is the checked exception it may throw
+    @FunctionalInterface
+    public interface Operation<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    @FunctionalInterface
+    public interface VoidOperation<E extends Exception> {
+        void run() throws E;
+    }
+
+    // Time an operation and count the SQL statements it runs: Metrics.time("searchMeals", () -> index.search(query))
+    public static <T, E extends Exception> T time(String operation, Operation<T, E> body) throws E {
+        Span span = span(operation);
+        try {
+            return body.run();
+        } finally {
+            span.close();
+        }
+    }
+
+    public static <E extends Exception> void run(String operation, VoidOperation<E> body) throws E {
+        Span span = span(operation);
+        try {
+            body.run();
+        } finally {
+            span.close();
+        }
+    }
+
+    // A span to close by hand, for callers that rename it or outlive one method
+    public static Span span(String operation) {
+        return new Span(operation);
+    }
+
+    // Timer of a statement, prepared statements look it up once
+    static LatencyHistogram sqlTimer(String sqlKey) {
+        return timer("sql " + sqlKey);
+    }
+
+    // Called for every executed statement by the pooled connections
+    static void recordQuery(LatencyHistogram sqlTimer, long nanos) {
+        sqlTimer.recordNanos(nanos);
+        increment("sql.statements");
+        Span span = CURRENT_SPAN.get();
+        if (span != null) {
+            span.queries++;
+        }
+    }
+
+    // Statement text without literal row lists, so multi-row INSERTs of any size share one timer.
+    // The row list is cut off before whitespace is collapsed, which keeps the work independent of the batch size.
+    static String sqlKey(String sql) {
+        int values = sql.indexOf("VALUES");
+        String head = values > 0 ? sql.substring(0, values) : sql;
+        if (head.length() > 4 * SQL_KEY_LENGTH) {
+            head = head.substring(0, 4 * SQL_KEY_LENGTH);
+        }
+        String key = WHITESPACE.matcher(head).replaceAll(" ").trim();
+        return key.length() > SQL_KEY_LENGTH ? key.substring(0, SQL_KEY_LENGTH) : key;
+    }
+
+    private static OperationStats operationStats(String operation) {
+        OperationStats stats = OPERATIONS.get(operation);
+        return stats != null ? stats : OPERATIONS.computeIfAbsent(operation, OperationStats::new);
+    }
+
+    // Log one summary line every intervalSeconds, 0 turns reporting off
+    public static synchronized void startReporting(long intervalSeconds) {
+        if (intervalSeconds <= 0 || reporter != null) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> System.err.println("metrics " + summary()),
+                intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public static String summary() {
+        StringBuilder line = new StringBuilder();
+        new TreeMap<>(COUNTERS).forEach((name, value) -> line.append(name).append('=').append(value.sum()).append(' '));
+        new TreeMap<>(GAUGES).forEach((name, value) -> line.append(name).append("=[").append(value.get()).append("] "));
+        new TreeMap<>(TIMERS).forEach((name, timer) -> line.append('"').append(name).append("\"=[").append(timer).append("] "));
+        return line.toString().trim();
+    }
+
+    public static String toJson() {
+        StringBuilder json = new StringBuilder("{\"counters\": {");
+        boolean first = true;
+        for (Map.Entry<String, LongAdder> counter : new TreeMap<>(COUNTERS).entrySet()) {
+            json.append(first ? "" : ", ").append(Json.quote(counter.getKey())).append(": ").append(counter.getValue().sum());
+            first = false;
+        }
+        json.append("}, \"gauges\": {");
+        first = true;
+        for (Map.Entry<String, Supplier<Object>> gauge : new TreeMap<>(GAUGES).entrySet()) {
+            json.append(first ? "" : ", ").append(Json.quote(gauge.getKey())).append(": ")
+                    .append(Json.quote(String.valueOf(gauge.getValue().get())));
+            first = false;
+        }
+        json.append("}, \"timers\": {");
+        first = true;
+        for (Map.Entry<String, LatencyHistogram> timer : new TreeMap<>(TIMERS).entrySet()) {
+            json.append(first ? "" : ", ").append(Json.quote(timer.getKey())).append(": ").append(timer.getValue().toJson());
+            first = false;
+        }
+        return json.append("}}").toString();
+    }
+
+    public static class Span implements AutoCloseable {
+        private final Span parent;
+        private final long start = System.nanoTime();
+        private final OperationEvent event = new OperationEvent();
+        private String operation;
+        private int queries;
+
+        private Span(String operation) {
+            this.operation = operation;
+            this.parent = CURRENT_SPAN.get();
+            CURRENT_SPAN.set(this);
+            event.begin();
+        }
+
+        // Name the span once it is known, e.g. an HTTP route resolved after the span started
+        public void rename(String operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public void close() {
+            OperationStats stats = operationStats(operation);
+            stats.timer.recordNanos(System.nanoTime() - start);
+            stats.queries.add(queries);
+            CURRENT_SPAN.set(parent);
+            if (parent != null) {
+                parent.queries += queries;
+            } else if (queries > QUERY_WARN_THRESHOLD) {
+                System.err.printf("Possible N+1: %s ran %d SQL statements%n", operation, queries);
+            }
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.queries = queries;
+                event.commit();
+            }
+        }
+    }
+
+    // The timer and query counter reported for one operation name
+    private static final class OperationStats {
+        private final LatencyHistogram timer;
+        private final LongAdder queries;
+
+        OperationStats(String operation) {
+            this.timer = timer("op " + operation);
+            this.queries = COUNTERS.computeIfAbsent("op " + operation + " queries", k -> new LongAdder());
+        }
+    }
+
+    @Name("mealplanner.Operation")
+    @Label("Meal Planner Operation")
+    @Category("Meal Planner")
+    static class OperationEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("SQL Statements")
+        int queries;
+    }
+
+    @Name("mealplanner.Sql")
+    @Label("Meal Planner SQL")
+    @Category("Meal Planner")
+    static class SqlEvent extends Event {
+        @Label("Statement")
+        String sql;
+    }
+}
@@ -0,0 +1,351 @@
+package mealplanner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Meal names in a compressed trie for type-ahead and typo-tolerant lookup.
+// Every node keeps the highest popularity below it, so completions come out best first without visiting
+// the whole subtree, and edit-distance search drops a branch as soon as its distance row exceeds the bound.
+public class NameIndex {
+    private final Node root = new Node("");
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int size;
+
+    private static final class Node {
+        // Characters on the edge from the parent, never empty below the root
+        String label;
+        // Sorted by the first character of their labels
+        Node[] children = NO_CHILDREN;
+        // The meal whose name ends here, null for inner nodes
+        Meal meal;
+        int popularity;
+        // Highest popularity of a meal in this subtree
+        int best;
+
+        Node(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    // A suggested meal, ordered by edit distance and then popularity
+    public static class Match {
+        private final Meal meal;
+        private final int distance;
+        private final int popularity;
+
+        Match(Meal meal, int distance, int popularity) {
+            this.meal = meal;
+            this.distance = distance;
+            this.popularity = popularity;
+        }
+
+        public Meal getMeal() {
+            return meal;
+        }
+
+        public int getDistance() {
+            return distance;
+        }
+
+        public int getPopularity() {
+            return popularity;
+        }
+    }
+
+    private static final Comparator<Match> MATCH_ORDER = Comparator.comparingInt(Match::getDistance)
+            .thenComparing(Comparator.comparingInt(Match::getPopularity).reversed())
+            .thenComparing(match -> match.getMeal().getName());
+
+    // Add a meal under its lowercased name, a meal of the same name is replaced
+    public void add(Meal meal) {
+        String name = meal.getName().toLowerCase();
+        lock.writeLock().lock();
+        try {
+            List<Node> path = new ArrayList<>();
+            Node node = insert(name, path);
+            if (node.meal == null) {
+                size++;
+            }
+            node.meal = meal;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Remove exactly this meal, the trie keeps its nodes and their best popularity stays an upper bound
+    public void remove(Meal meal) {
+        String name = meal.getName().toLowerCase();
+        lock.writeLock().lock();
+        try {
+            Node node = lookup(name, new ArrayList<>());
+            if (node != null && node.meal == meal) {
+                node.meal = null;
+                node.popularity = 0;
+                size--;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Count uses of a meal, it moves up in completions
+    public void recordUse(Meal meal, int times) {
+        String name = meal.getName().toLowerCase();
+        lock.writeLock().lock();
+        try {
+            List<Node> path = new ArrayList<>();
+            Node node = lookup(name, path);
+            if (node != null && node.meal != null && node.meal.getId() == meal.getId()) {
+                node.popularity += times;
+                raise(path, node.popularity);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Meals whose names start with the prefix, most popular first and then alphabetical; category null means any
+    public List<Meal> complete(String prefix, int limit, MealCategory category) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        String key = prefix.toLowerCase();
+        lock.readLock().lock();
+        try {
+            List<Meal> results = new ArrayList<>();
+            // Find the node whose path covers the prefix, it may end inside that node's edge
+            Node node = root;
+            StringBuilder path = new StringBuilder();
+            int matched = 0;
+            while (matched < key.length()) {
+                Node next = child(node, key.charAt(matched));
+                if (next == null) {
+                    return results;
+                }
+                int common = commonPrefix(next.label, key, matched);
+                if (common < next.label.length() && matched + common < key.length()) {
+                    return results;
+                }
+                path.append(next.label);
+                matched += common;
+                node = next;
+            }
+
+            // Best-first over subtrees: a subtree is opened only when its best meal could still make the cut
+            PriorityQueue<Candidate> queue = new PriorityQueue<>();
+            queue.add(new Candidate(node, path.toString(), node.best, false));
+            while (!queue.isEmpty() && results.size() < limit) {
+                Candidate candidate = queue.poll();
+                if (candidate.terminal) {
+                    results.add(candidate.node.meal);
+                    continue;
+                }
+                Node current = candidate.node;
+                if (current.meal != null && (category == null || current.meal.getCategory() == category)) {
+                    queue.add(new Candidate(current, candidate.name, current.popularity, true));
+                }
+                for (Node child : current.children) {
+                    queue.add(new Candidate(child, candidate.name + child.label, child.best, false));
+                }
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Meals within maxDistance edits of the name, closest first; category null means any
+    public List<Match> closest(String name, int maxDistance, int limit, MealCategory category) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        String key = name.toLowerCase();
+        lock.readLock().lock();
+        try {
+            List<Match> matches = new ArrayList<>();
+            int[] firstRow = new int[key.length() + 1];
+            for (int i = 0; i < firstRow.length; i++) {
+                firstRow[i] = i;
+            }
+            for (Node child : root.children) {
+                search(child, key, firstRow, maxDistance, category, matches);
+            }
+            matches.sort(MATCH_ORDER);
+            return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // One Levenshtein row per character on the way down, the rows of a shared prefix are computed once
+    private static void search(Node node, String key, int[] previousRow, int maxDistance, MealCategory category,
+                               List<Match> matches) {
+        int[] row = previousRow;
+        for (int c = 0; c < node.label.length(); c++) {
+            char letter = node.label.charAt(c);
+            int[] nextRow = new int[row.length];
+            nextRow[0] = row[0] + 1;
+            int rowMin = nextRow[0];
+            for (int i = 1; i < row.length; i++) {
+                int substitution = row[i - 1] + (key.charAt(i - 1) == letter ? 0 : 1);
+                nextRow[i] = Math.min(substitution, Math.min(row[i] + 1, nextRow[i - 1] + 1));
+                rowMin = Math.min(rowMin, nextRow[i]);
+            }
+            if (rowMin > maxDistance) {
+                return;
+            }
+            row = nextRow;
+        }
+        int distance = row[row.length - 1];
+        if (node.meal != null && distance <= maxDistance && (category == null || node.meal.getCategory() == category)) {
+            matches.add(new Match(node.meal, distance, node.popularity));
+        }
+        for (Node child : node.children) {
+            search(child, key, row, maxDistance, category, matches);
+        }
+    }
+
+    // The node where exactly this name ends, null when there is none; path gets the nodes on the way
+    private Node lookup(String name, List<Node> path) {
+        Node node = root;
+        int matched = 0;
+        path.add(node);
+        while (matched < name.length()) {
+            node = child(node, name.charAt(matched));
+            if (node == null || !name.startsWith(node.label, matched)) {
+                return null;
+            }
+            matched += node.label.length();
+            path.add(node);
+        }
+        return node;
+    }
+
+    // Walk down to the node for the name, splitting an edge or adding a leaf where needed
+    private Node insert(String name, List<Node> path) {
+        Node node = root;
+        int matched = 0;
+        path.add(node);
+        while (matched < name.length()) {
+            Node next = child(node, name.charAt(matched));
+            if (next == null) {
+                Node leaf = new Node(name.substring(matched));
+                addChild(node, leaf);
+                path.add(leaf);
+                return leaf;
+            }
+            int common = commonPrefix(next.label, name, matched);
+            if (common < next.label.length()) {
+                // Split the edge: the shared part becomes a new inner node above the old child
+                Node split = new Node(next.label.substring(0, common));
+                split.best = next.best;
+                next.label = next.label.substring(common);
+                split.children = new Node[]{next};
+                replaceChild(node, next, split);
+                next = split;
+            }
+            matched += common;
+            node = next;
+            path.add(node);
+        }
+        return node;
+    }
+
+    private static void raise(List<Node> path, int popularity) {
+        for (Node node : path) {
+            node.best = Math.max(node.best, popularity);
+        }
+    }
+
+    private static Node child(Node node, char first) {
+        Node[] children = node.children;
+        int low = 0;
+        int high = children.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char c = children[mid].label.charAt(0);
+            if (c < first) {
+                low = mid + 1;
+            } else if (c > first) {
+                high = mid - 1;
+            } else {
+                return children[mid];
+            }
+        }
+        return null;
+    }
+
+    private static void addChild(Node node, Node child) {
+        char first = child.label.charAt(0);
+        Node[] children = Arrays.copyOf(node.children, node.children.length + 1);
+        int i = children.length - 1;
+        while (i > 0 && children[i - 1].label.charAt(0) > first) {
+            children[i] = children[i - 1];
+            i--;
+        }
+        children[i] = child;
+        node.children = children;
+    }
+
+    private static void replaceChild(Node node, Node oldChild, Node newChild) {
+        for (int i = 0; i < node.children.length; i++) {
+            if (node.children[i] == oldChild) {
+                node.children[i] = newChild;
+                return;
+            }
+        }
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    // A subtree to open or a meal to emit, higher scores first and alphabetical among equals
+    private static final class Candidate implements Comparable<Candidate> {
+        final Node node;
+        final String name;
+        final int score;
+        final boolean terminal;
+
+        Candidate(Node node, String name, int score, boolean terminal) {
+            this.node = node;
+            this.name = name;
+            this.score = score;
+            this.terminal = terminal;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            if (score != other.score) {
+                return Integer.compare(other.score, score);
+            }
+            int byName = name.compareTo(other.name);
+            if (byName != 0) {
+                return byName;
+            }
+            // A meal comes before the subtree below it
+            return Boolean.compare(other.terminal, terminal);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package mealplanner;
+
+// Nutrients and price of a portion, a meal or a day; macros in grams
+public class Nutrition {
+    public static final Nutrition ZERO = new Nutrition(0, 0, 0, 0, 0);
+
+    private final double calories;
+    private final double protein;
+    private final double carbs;
+    private final double fat;
+    private final double price;
+
+    public Nutrition(double calories, double protein, double carbs, double fat, double price) {
+        this.calories = calories;
+        this.protein = protein;
+        this.carbs = carbs;
+        this.fat = fat;
+        this.price = price;
+    }
+
+    public Nutrition plus(Nutrition other) {
+        return new Nutrition(calories + other.calories, protein + other.protein, carbs + other.carbs,
+                fat + other.fat, price + other.price);
+    }
+
+    public double getCalories() {
+        return calories;
+    }
+
+    public double getProtein() {
+        return protein;
+    }
+
+    public double getCarbs() {
+        return carbs;
+    }
+
+    public double getFat() {
+        return fat;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.0f kcal, %.1f g protein, %.1f g carbs, %.1f g fat, %.2f", calories, protein, carbs, fat, price);
+    }
+}
@@ -0,0 +1,70 @@
+package mealplanner;
+
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+
+// Persistence of ingredient nutrition in ingredient_nutrition, keyed through ingredient_names
+public class NutritionStore {
+    // Schema version that added ingredient_nutrition
+    private static final int NUTRITION_SCHEMA_VERSION = 6;
+    private static final String LOAD_SQL = "SELECT n.name, x.calories, x.protein, x.carbs, x.fat, x.price " +
+            "FROM ingredient_nutrition x JOIN ingredient_names n ON n.ingredient_name_id = x.ingredient_name_id";
+    private static final String INSERT_NAME_SQL = "INSERT INTO ingredient_names (name) VALUES (?) ON CONFLICT DO NOTHING";
+    private static final String DELETE_SQL = "DELETE FROM ingredient_nutrition WHERE ingredient_name_id = " +
+            "(SELECT ingredient_name_id FROM ingredient_names WHERE name = ?)";
+    private static final String INSERT_SQL = "INSERT INTO ingredient_nutrition " +
+            "(ingredient_name_id, calories, protein, carbs, fat, price) " +
+            "VALUES ((SELECT ingredient_name_id FROM ingredient_names WHERE name = ?), ?, ?, ?, ?, ?)";
+
+    private final DatabaseManager dbManager;
+
+    public NutritionStore(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+    }
+
+    // Ingredient name -> nutrition, empty before the nutrition migration
+    public Map<String, Nutrition> load() throws SQLException {
+        Map<String, Nutrition> nutrition = new HashMap<>();
+        if (dbManager.getSchemaVersion() < NUTRITION_SCHEMA_VERSION) {
+            return nutrition;
+        }
+        try (Connection connection = dbManager.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(LOAD_SQL)) {
+            while (rs.next()) {
+                nutrition.put(rs.getString("name"), new Nutrition(rs.getDouble("calories"), rs.getDouble("protein"),
+                        rs.getDouble("carbs"), rs.getDouble("fat"), rs.getDouble("price")));
+            }
+        }
+        return nutrition;
+    }
+
+    // Store the values of one ingredient, replacing earlier ones
+    public void save(String ingredient, Nutrition nutrition) throws SQLException {
+        try (Connection connection = dbManager.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement insertName = connection.prepareStatement(INSERT_NAME_SQL);
+                 PreparedStatement delete = connection.prepareStatement(DELETE_SQL);
+                 PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+                insertName.setString(1, ingredient);
+                insertName.executeUpdate();
+                delete.setString(1, ingredient);
+                delete.executeUpdate();
+                insert.setString(1, ingredient);
+                insert.setDouble(2, nutrition.getCalories());
+                insert.setDouble(3, nutrition.getProtein());
+                insert.setDouble(4, nutrition.getCarbs());
+                insert.setDouble(5, nutrition.getFat());
+                insert.setDouble(6, nutrition.getPrice());
+                insert.executeUpdate();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package mealplanner;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Nutrition and price per ingredient, keyed by IngredientDictionary id; meals without data count as zero
+public class NutritionTable {
+    private final Map<Integer, Nutrition> byIngredient = new ConcurrentHashMap<>();
+
+    public static NutritionTable of(Map<String, Nutrition> nutrition) {
+        NutritionTable table = new NutritionTable();
+        nutrition.forEach(table::put);
+        return table;
+    }
+
+    public void put(String ingredient, Nutrition nutrition) {
+        byIngredient.put(IngredientDictionary.shared().intern(ingredient), nutrition);
+    }
+
+    public Nutrition get(String ingredient) {
+        int id = IngredientDictionary.shared().idOf(ingredient);
+        return id < 0 ? null : byIngredient.get(id);
+    }
+
+    // Sum over the meal's ingredients
+    public Nutrition forMeal(Meal meal) {
+        double calories = 0;
+        double protein = 0;
+        double carbs = 0;
+        double fat = 0;
+        double price = 0;
+        for (int i = 0; i < meal.ingredientCount(); i++) {
+            Nutrition nutrition = byIngredient.get(meal.ingredientId(i));
+            if (nutrition != null) {
+                calories += nutrition.getCalories();
+                protein += nutrition.getProtein();
+                carbs += nutrition.getCarbs();
+                fat += nutrition.getFat();
+                price += nutrition.getPrice();
+            }
+        }
+        return new Nutrition(calories, protein, carbs, fat, price);
+    }
+
+    public int size() {
+        return byIngredient.size();
+    }
+}
@@ -0,0 +1,100 @@
+package mealplanner;
+
+import java.util.*;
+
+public class PlanGenerator {
+    private final CategoryIndex categoryIndex;
+
+    public PlanGenerator(CategoryIndex categoryIndex) {
+        this.categoryIndex = categoryIndex;
+    }
+
+    // Fill the week from the catalog under the request's constraints, safe to call from many threads
+    public WeeklyPlan generate(PlanRequest request) {
+        Random random = new Random(request.getSeed());
+        WeeklyPlan plan = new WeeklyPlan();
+
+        for (String category : WeeklyPlan.CATEGORIES) {
+            List<Meal> candidates = eligibleMeals(category, request);
+            if (candidates.isEmpty()) {
+                continue;
+            }
+            int quota = Math.min(request.getCategoryQuota(category), WeeklyPlan.DAYS.length);
+            Map<Meal, Integer> lastUsedDay = new HashMap<>();
+
+            for (int day = 0; day < quota; day++) {
+                Meal meal = pickMeal(candidates, lastUsedDay, day, request.getNoRepeatDays(), random);
+                lastUsedDay.put(meal, day);
+                plan.put(WeeklyPlan.DAYS[day], category, meal);
+            }
+        }
+        return plan;
+    }
+
+    // Meals of a category that pass the request's ingredient filters, also used by PlanOptimizer
+    List<Meal> eligibleMeals(String category, PlanRequest request) {
+        List<Meal> eligible = new ArrayList<>();
+        int[] required = ingredientIds(request.getRequiredIngredients());
+        int[] excluded = ingredientIds(request.getExcludedIngredients());
+        for (int id : required) {
+            if (id < 0) {
+                // No meal can contain an ingredient the catalog has never seen
+                return eligible;
+            }
+        }
+        for (Meal meal : categoryIndex.list(category)) {
+            if (hasAll(meal, required) && hasNone(meal, excluded)) {
+                eligible.add(meal);
+            }
+        }
+        return eligible;
+    }
+
+    private static int[] ingredientIds(Set<String> ingredients) {
+        IngredientDictionary dictionary = IngredientDictionary.shared();
+        int[] ids = new int[ingredients.size()];
+        int i = 0;
+        for (String ingredient : ingredients) {
+            ids[i++] = dictionary.idOf(ingredient);
+        }
+        return ids;
+    }
+
+    private static boolean hasAll(Meal meal, int[] ingredientIds) {
+        for (int id : ingredientIds) {
+            if (!meal.hasIngredient(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasNone(Meal meal, int[] ingredientIds) {
+        for (int id : ingredientIds) {
+            if (id >= 0 && meal.hasIngredient(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Random meal not used in the last noRepeatDays days, or the least recently used one if all were
+    private Meal pickMeal(List<Meal> candidates, Map<Meal, Integer> lastUsedDay, int day, int noRepeatDays, Random random) {
+        int start = random.nextInt(candidates.size());
+        Meal leastRecent = null;
+        int leastRecentDay = Integer.MAX_VALUE;
+
+        for (int i = 0; i < candidates.size(); i++) {
+            Meal meal = candidates.get((start + i) % candidates.size());
+            Integer usedOn = lastUsedDay.get(meal);
+            if (usedOn == null || day - usedOn > noRepeatDays) {
+                return meal;
+            }
+            if (usedOn < leastRecentDay) {
+                leastRecentDay = usedOn;
+                leastRecent = meal;
+            }
+        }
+        return leastRecent;
+    }
+}
@@ -0,0 +1,377 @@
+package mealplanner;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Cheapest week that meets PlanTargets, found by simulated annealing over the plan's slots.
+// Every worker anneals from its own random start until the time budget runs out, the best plan wins.
+// Targets are soft: violations are priced far above any meal, so feasible plans always rank first.
+// The workers run on a pool the optimizer owns for its lifetime, close it when done.
+public class PlanOptimizer implements AutoCloseable {
+    // Cost of one unit of violation: 100 kcal, 10 g of a macro, one currency unit over budget, one extra use
+    private static final double PENALTY_WEIGHT = 1_000;
+    private static final double CALORIE_SCALE = 100;
+    private static final double MACRO_SCALE = 10;
+    // Annealing starts accepting half a penalty unit uphill and cools to a fraction of a cent
+    private static final double START_TEMPERATURE = PENALTY_WEIGHT / 2;
+    private static final double COOLING_RANGE = 1e-5;
+    // Iterations between clock reads
+    private static final int CHECK_INTERVAL = 256;
+    private static final int DAYS = WeeklyPlan.DAYS.length;
+
+    private final PlanGenerator generator;
+    private final NutritionTable nutrition;
+    private final int parallelism;
+    // Shared by all optimize calls, concurrent calls split its workers between them
+    private final ForkJoinPool pool;
+
+    public PlanOptimizer(PlanGenerator generator, NutritionTable nutrition, int parallelism) {
+        this.generator = generator;
+        this.nutrition = nutrition;
+        this.parallelism = parallelism;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    // Meals are drawn from those PlanRequest allows (ingredient filters, category quotas)
+    public Result optimize(PlanRequest request, PlanTargets targets, Duration timeBudget) throws InterruptedException {
+        long start = System.nanoTime();
+        Problem problem = new Problem(request, targets);
+        if (problem.slotCount == 0) {
+            return new Result(new WeeklyPlan(), Nutrition.ZERO, 0, 0, System.nanoTime() - start);
+        }
+        long deadline = start + timeBudget.toNanos();
+        Random seeds = new Random(request.getSeed());
+        long[] workerSeeds = seeds.longs(parallelism).toArray();
+
+        try {
+            List<Search> searches = pool.submit(() -> IntStream.range(0, parallelism).parallel()
+                    .mapToObj(i -> new Search(problem, new Random(workerSeeds[i])).run(deadline))
+                    .collect(Collectors.toList())).get();
+            Search best = null;
+            long iterations = 0;
+            for (Search search : searches) {
+                iterations += search.iterations;
+                if (best == null || search.bestObjective < best.bestObjective) {
+                    best = search;
+                }
+            }
+            return problem.result(best.bestChoice, iterations, System.nanoTime() - start);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Plan optimization failed - " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    // Searches still running finish at their deadline, no new ones are accepted
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    // Candidate meals and their precomputed values, shared read-only by all workers
+    private class Problem {
+        private final PlanTargets targets;
+        private final Meal[][] candidates = new Meal[WeeklyPlan.CATEGORIES.length][];
+        // [category][candidate][calories, protein, carbs, fat]
+        private final double[][][] values = new double[WeeklyPlan.CATEGORIES.length][][];
+        private final double[][] prices = new double[WeeklyPlan.CATEGORIES.length][];
+        private final int[] slotDay;
+        private final int[] slotCategory;
+        private final int slotCount;
+
+        Problem(PlanRequest request, PlanTargets targets) {
+            this.targets = targets;
+            List<int[]> slots = new ArrayList<>();
+            for (int c = 0; c < WeeklyPlan.CATEGORIES.length; c++) {
+                String category = WeeklyPlan.CATEGORIES[c];
+                List<Meal> eligible = generator.eligibleMeals(category, request);
+                candidates[c] = eligible.toArray(new Meal[0]);
+                values[c] = new double[candidates[c].length][];
+                prices[c] = new double[candidates[c].length];
+                for (int j = 0; j < candidates[c].length; j++) {
+                    Nutrition n = nutrition.forMeal(candidates[c][j]);
+                    values[c][j] = new double[]{n.getCalories(), n.getProtein(), n.getCarbs(), n.getFat()};
+                    prices[c][j] = n.getPrice();
+                }
+                if (candidates[c].length == 0) {
+                    continue;
+                }
+                int quota = Math.min(request.getCategoryQuota(category), DAYS);
+                for (int day = 0; day < quota; day++) {
+                    slots.add(new int[]{day, c});
+                }
+            }
+            slotCount = slots.size();
+            slotDay = new int[slotCount];
+            slotCategory = new int[slotCount];
+            for (int s = 0; s < slotCount; s++) {
+                slotDay[s] = slots.get(s)[0];
+                slotCategory[s] = slots.get(s)[1];
+            }
+        }
+
+        // Violation of one day's targets in penalty units
+        double dayPenalty(double[] totals) {
+            return (Math.max(0, targets.getMinCalories() - totals[0]) + Math.max(0, totals[0] - targets.getMaxCalories())) / CALORIE_SCALE
+                    + Math.max(0, targets.getMinProtein() - totals[1]) / MACRO_SCALE
+                    + Math.max(0, totals[2] - targets.getMaxCarbs()) / MACRO_SCALE
+                    + Math.max(0, totals[3] - targets.getMaxFat()) / MACRO_SCALE;
+        }
+
+        double budgetPenalty(double cost) {
+            return Math.max(0, cost - targets.getWeeklyBudget());
+        }
+
+        Result result(int[] choice, long iterations, long elapsedNanos) {
+            WeeklyPlan plan = new WeeklyPlan();
+            Nutrition total = Nutrition.ZERO;
+            double[][] dayTotals = new double[DAYS][4];
+            double cost = 0;
+            int[][] uses = new int[WeeklyPlan.CATEGORIES.length][];
+            for (int c = 0; c < uses.length; c++) {
+                uses[c] = new int[candidates[c].length];
+            }
+            for (int s = 0; s < slotCount; s++) {
+                int c = slotCategory[s];
+                Meal meal = candidates[c][choice[s]];
+                plan.put(WeeklyPlan.DAYS[slotDay[s]], WeeklyPlan.CATEGORIES[c], meal);
+                total = total.plus(nutrition.forMeal(meal));
+                for (int k = 0; k < 4; k++) {
+                    dayTotals[slotDay[s]][k] += values[c][choice[s]][k];
+                }
+                cost += prices[c][choice[s]];
+                uses[c][choice[s]]++;
+            }
+            double penalty = budgetPenalty(cost);
+            for (double[] totals : dayTotals) {
+                penalty += dayPenalty(totals);
+            }
+            for (int[] categoryUses : uses) {
+                for (int count : categoryUses) {
+                    penalty += Math.max(0, count - targets.getMaxUsesPerMeal());
+                }
+            }
+            return new Result(plan, total, penalty, iterations, elapsedNanos);
+        }
+    }
+
+    // One annealing run with incremental bookkeeping, so a move costs O(1)
+    private static class Search {
+        private final Problem problem;
+        private final Random random;
+        private final int[] choice;
+        private final double[][] dayTotals = new double[DAYS][4];
+        private final double[] dayPenalties = new double[DAYS];
+        private final int[][] uses;
+        private double cost;
+        private double varietyPenalty;
+        private double objective;
+        private int[] bestChoice;
+        private double bestObjective;
+        private long iterations;
+
+        Search(Problem problem, Random random) {
+            this.problem = problem;
+            this.random = random;
+            this.choice = new int[problem.slotCount];
+            this.uses = new int[WeeklyPlan.CATEGORIES.length][];
+            for (int c = 0; c < uses.length; c++) {
+                uses[c] = new int[problem.candidates[c].length];
+            }
+            for (int s = 0; s < problem.slotCount; s++) {
+                int c = problem.slotCategory[s];
+                choice[s] = random.nextInt(problem.candidates[c].length);
+                add(s, choice[s], 1);
+            }
+            for (int day = 0; day < DAYS; day++) {
+                dayPenalties[day] = problem.dayPenalty(dayTotals[day]);
+            }
+            objective = evaluate();
+            bestChoice = choice.clone();
+            bestObjective = objective;
+        }
+
+        private void add(int slot, int candidate, int sign) {
+            int c = problem.slotCategory[slot];
+            double[] mealValues = problem.values[c][candidate];
+            double[] totals = dayTotals[problem.slotDay[slot]];
+            for (int k = 0; k < 4; k++) {
+                totals[k] += sign * mealValues[k];
+            }
+            cost += sign * problem.prices[c][candidate];
+            int before = uses[c][candidate];
+            uses[c][candidate] += sign;
+            int max = problem.targets.getMaxUsesPerMeal();
+            varietyPenalty += Math.max(0, uses[c][candidate] - max) - Math.max(0, before - max);
+        }
+
+        private double evaluate() {
+            double penalty = varietyPenalty + problem.budgetPenalty(cost);
+            for (double dayPenalty : dayPenalties) {
+                penalty += dayPenalty;
+            }
+            return cost + PENALTY_WEIGHT * penalty;
+        }
+
+        Search run(long deadline) {
+            long start = System.nanoTime();
+            double temperature = START_TEMPERATURE;
+            while (true) {
+                if (iterations % CHECK_INTERVAL == 0) {
+                    long now = System.nanoTime();
+                    if (now >= deadline) {
+                        break;
+                    }
+                    // Cool geometrically over the time budget
+                    double progress = (double) (now - start) / Math.max(1, deadline - start);
+                    temperature = START_TEMPERATURE * Math.pow(COOLING_RANGE, progress);
+                }
+                iterations++;
+                if (random.nextInt(4) == 0) {
+                    trySwap(temperature);
+                } else {
+                    tryChange(temperature);
+                }
+            }
+            return this;
+        }
+
+        // Put another candidate into one slot
+        private void tryChange(double temperature) {
+            int slot = random.nextInt(problem.slotCount);
+            int c = problem.slotCategory[slot];
+            int old = choice[slot];
+            int candidate = random.nextInt(problem.candidates[c].length);
+            if (candidate == old) {
+                return;
+            }
+            int day = problem.slotDay[slot];
+            double oldDayPenalty = dayPenalties[day];
+
+            add(slot, old, -1);
+            add(slot, candidate, 1);
+            dayPenalties[day] = problem.dayPenalty(dayTotals[day]);
+            double next = evaluate();
+            if (accept(next, temperature)) {
+                choice[slot] = candidate;
+                commit(next);
+            } else {
+                add(slot, candidate, -1);
+                add(slot, old, 1);
+                dayPenalties[day] = oldDayPenalty;
+            }
+        }
+
+        // Exchange the meals of two days in the same category, price and variety stay the same
+        private void trySwap(double temperature) {
+            int first = random.nextInt(problem.slotCount);
+            int second = random.nextInt(problem.slotCount);
+            int c = problem.slotCategory[first];
+            if (first == second || problem.slotCategory[second] != c || choice[first] == choice[second]) {
+                return;
+            }
+            int firstDay = problem.slotDay[first];
+            int secondDay = problem.slotDay[second];
+            double firstPenalty = dayPenalties[firstDay];
+            double secondPenalty = dayPenalties[secondDay];
+
+            swapValues(first, second, 1);
+            double next = evaluate();
+            if (accept(next, temperature)) {
+                int meal = choice[first];
+                choice[first] = choice[second];
+                choice[second] = meal;
+                commit(next);
+            } else {
+                swapValues(first, second, -1);
+                dayPenalties[firstDay] = firstPenalty;
+                dayPenalties[secondDay] = secondPenalty;
+            }
+        }
+
+        // Exchange the day totals of the two slots' meals (sign 1) or undo that (sign -1), without touching choice
+        private void swapValues(int from, int to, int sign) {
+            int c = problem.slotCategory[from];
+            double[] fromValues = problem.values[c][choice[from]];
+            double[] toValues = problem.values[c][choice[to]];
+            double[] fromDay = dayTotals[problem.slotDay[from]];
+            double[] toDay = dayTotals[problem.slotDay[to]];
+            for (int k = 0; k < 4; k++) {
+                double delta = sign * (toValues[k] - fromValues[k]);
+                fromDay[k] += delta;
+                toDay[k] -= delta;
+            }
+            dayPenalties[problem.slotDay[from]] = problem.dayPenalty(fromDay);
+            dayPenalties[problem.slotDay[to]] = problem.dayPenalty(toDay);
+        }
+
+        private boolean accept(double next, double temperature) {
+            return next <= objective || random.nextDouble() < Math.exp((objective - next) / temperature);
+        }
+
+        private void commit(double next) {
+            objective = next;
+            if (objective < bestObjective) {
+                bestObjective = objective;
+                bestChoice = choice.clone();
+            }
+        }
+    }
+
+    public static class Result {
+        private final WeeklyPlan plan;
+        private final Nutrition total;
+        private final double penalty;
+        private final long iterations;
+        private final long elapsedNanos;
+
+        Result(WeeklyPlan plan, Nutrition total, double penalty, long iterations, long elapsedNanos) {
+            this.plan = plan;
+            this.total = total;
+            this.penalty = penalty;
+            this.iterations = iterations;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public WeeklyPlan getPlan() {
+            return plan;
+        }
+
+        // Summed nutrition and price of the whole week
+        public Nutrition getTotal() {
+            return total;
+        }
+
+        public double getCost() {
+            return total.getPrice();
+        }
+
+        // Remaining target violation in penalty units, 0 when every target is met
+        public double getPenalty() {
+            return penalty;
+        }
+
+        public boolean isFeasible() {
+            return penalty < 1e-9;
+        }
+
+        public long getIterations() {
+            return iterations;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("cost %.2f, penalty %.3f, %s, %,d iterations in %d ms",
+                    getCost(), penalty, isFeasible() ? "feasible" : "infeasible", iterations, getElapsedMillis());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package mealplanner;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class PlanRequest {
+    private long seed = System.nanoTime();
+    private int noRepeatDays = 0;
+    private final Set<String> requiredIngredients = new HashSet<>();
+    private final Set<String> excludedIngredients = new HashSet<>();
+    private final Map<String, Integer> categoryQuotas = new HashMap<>();
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // Fixed seed for a reproducible plan
+    public PlanRequest setSeed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public int getNoRepeatDays() {
+        return noRepeatDays;
+    }
+
+    // A meal is not planned again within this many days of its last use
+    public PlanRequest setNoRepeatDays(int noRepeatDays) {
+        this.noRepeatDays = noRepeatDays;
+        return this;
+    }
+
+    public Set<String> getRequiredIngredients() {
+        return requiredIngredients;
+    }
+
+    // Only meals containing all of these ingredients are planned
+    public PlanRequest requireIngredient(String ingredient) {
+        requiredIngredients.add(ingredient.toLowerCase());
+        return this;
+    }
+
+    public Set<String> getExcludedIngredients() {
+        return excludedIngredients;
+    }
+
+    // Meals containing any of these ingredients are never planned
+    public PlanRequest excludeIngredient(String ingredient) {
+        excludedIngredients.add(ingredient.toLowerCase());
+        return this;
+    }
+
+    // Number of days that get a meal of this category, 7 when not set
+    public int getCategoryQuota(String category) {
+        return categoryQuotas.getOrDefault(category, WeeklyPlan.DAYS.length);
+    }
+
+    public PlanRequest setCategoryQuota(String category, int quota) {
+        categoryQuotas.put(category, quota);
+        return this;
+    }
+}
@@ -0,0 +1,200 @@
+package mealplanner;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+// The plan of one user for one week; sessions share the catalog but never each other's plan state
+public class PlanSession {
+    private final String user;
+    private final String week;
+    private final MealRepository repository;
+    private final MealCache mealCache;
+    private final PlanGenerator generator;
+    private final Lock writeLock;
+    private final WriteBehindWriter writeBehind;
+    private final NameIndex nameIndex;
+    private volatile WeeklyPlan plan = new WeeklyPlan();
+    private volatile int planId = -1;
+    // Ingredient tally of plan, kept up to date slot by slot; guarded by writeLock
+    private ShoppingList shoppingList = new ShoppingList();
+    // Sequence number of this session's latest queued save, written under writeLock
+    private volatile long lastQueuedSave;
+    // Set when a queued save could not be stored, plan no longer matches the database until the next load
+    private volatile SQLException failedSave;
+
+    // writeBehind is null when plans are saved synchronously
+    PlanSession(String user, String week, MealRepository repository, MealCache mealCache, PlanGenerator generator, Lock writeLock,
+                WriteBehindWriter writeBehind, NameIndex nameIndex) {
+        this.user = user;
+        this.week = week;
+        this.repository = repository;
+        this.mealCache = mealCache;
+        this.generator = generator;
+        this.writeLock = writeLock;
+        this.writeBehind = writeBehind;
+        this.nameIndex = nameIndex;
+    }
+
+    // ISO week of a date, like 2024-W05
+    public static String weekOf(LocalDate date) {
+        return String.format("%d-W%02d", date.get(IsoFields.WEEK_BASED_YEAR), date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public String getWeek() {
+        return week;
+    }
+
+    // The plan last saved or loaded in this session, empty before that
+    public WeeklyPlan getPlan() {
+        return plan;
+    }
+
+    public WeeklyPlan generate(PlanRequest request) {
+        return generator.generate(request);
+    }
+
+    // Store the plan as this user's week, writes to the same user and week are serialized
+    public void save(WeeklyPlan newPlan) throws SQLException {
+        writeLock.lock();
+        try {
+            if (writeBehind != null) {
+                queueSave(newPlan);
+            } else {
+                repository.savePlan(planId(), newPlan.asMap());
+            }
+            plan = newPlan;
+            shoppingList = ShoppingList.aggregate(newPlan.asMap());
+        } finally {
+            writeLock.unlock();
+        }
+        // Planned meals rank higher in name completions
+        for (Map<String, Meal> mealsForDay : newPlan.asMap().values()) {
+            for (Meal meal : mealsForDay.values()) {
+                nameIndex.recordUse(meal, 1);
+            }
+        }
+    }
+
+    // Put another meal into one slot and return the meal it replaced, null for an empty slot.
+    // The shopping list is updated by the difference of the two meals instead of being recounted.
+    public Meal replaceSlot(String day, String category, Meal meal) throws SQLException {
+        if (!Arrays.asList(WeeklyPlan.DAYS).contains(day) || !Arrays.asList(WeeklyPlan.CATEGORIES).contains(category)) {
+            throw new IllegalArgumentException("unknown slot " + day + " " + category);
+        }
+        if (meal.getCategory() != MealCategory.of(category)) {
+            throw new IllegalArgumentException(meal.getName() + " is not a " + category);
+        }
+        writeLock.lock();
+        try {
+            WeeklyPlan newPlan = plan.copy();
+            newPlan.put(day, category, meal);
+            if (writeBehind != null) {
+                // Only this slot is queued, stored slots the session has not loaded are kept
+                checkSaves();
+                lastQueuedSave = writeBehind.saveSlot(planId(), day, category, meal, e -> failedSave = e);
+            } else {
+                repository.saveSlot(planId(), day, category, meal.getId());
+            }
+
+            Meal replaced = plan.get(day, category);
+            if (replaced != null) {
+                shoppingList.removeMeal(replaced);
+            }
+            shoppingList.addMeal(meal);
+            nameIndex.recordUse(meal, 1);
+            // Readers holding the old plan keep a consistent week
+            plan = newPlan;
+            return replaced;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Caller holds writeLock
+    private void queueSave(WeeklyPlan newPlan) throws SQLException {
+        checkSaves();
+        lastQueuedSave = writeBehind.savePlan(planId(), newPlan.asMap(), e -> failedSave = e);
+    }
+
+    // Refuses to build on a plan whose earlier save was lost
+    private void checkSaves() throws SQLException {
+        if (failedSave != null) {
+            throw new SQLException("An earlier save of this plan failed, load the plan again", failedSave);
+        }
+    }
+
+    // Read the stored week, planned meals are resolved through the shared catalog cache; clears a failed save
+    public WeeklyPlan load() throws SQLException {
+        if (writeBehind != null) {
+            // Read our own writes: this session's queued saves reach the database first, other sessions' are not waited for
+            try {
+                writeBehind.flush(lastQueuedSave);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while flushing queued writes", e);
+            }
+        }
+        WeeklyPlan storedPlan = new WeeklyPlan();
+        // Reading never creates the plan, a week nobody saved yet is empty
+        int id = planId;
+        if (id < 0) {
+            id = repository.findPlanId(user, week);
+            planId = id;
+        }
+        List<PlanStore.Slot> slots = id < 0 ? List.of() : repository.loadPlan(id);
+        List<Integer> mealIds = new ArrayList<>();
+        for (PlanStore.Slot slot : slots) {
+            mealIds.add(slot.getMealId());
+        }
+
+        // Resolve all planned meals at once, only cache misses go to the database
+        Map<Integer, Meal> plannedMeals = mealCache.getAll(mealIds);
+        for (PlanStore.Slot slot : slots) {
+            Meal meal = plannedMeals.get(slot.getMealId());
+            if (meal != null) {
+                storedPlan.put(slot.getDay(), slot.getCategory(), meal);
+            }
+        }
+        writeLock.lock();
+        try {
+            plan = storedPlan;
+            shoppingList = ShoppingList.aggregate(storedPlan.asMap());
+            failedSave = null;
+        } finally {
+            writeLock.unlock();
+        }
+        return storedPlan;
+    }
+
+    // Copy of the live tally, so callers can export it while slots keep changing
+    public ShoppingList shoppingList() {
+        writeLock.lock();
+        try {
+            return shoppingList.copy();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Whether saves of this session are still waiting for the background writer
+    boolean hasQueuedSaves() {
+        return writeBehind != null && !writeBehind.isWritten(lastQueuedSave);
+    }
+
+    private int planId() throws SQLException {
+        if (planId < 0) {
+            planId = repository.planId(user, week);
+        }
+        return planId;
+    }
+}
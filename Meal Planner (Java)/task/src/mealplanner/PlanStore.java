@@ -0,0 +1,188 @@
+package mealplanner;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Persistence of weekly plans: meal_planner holds the current week of each plan, plan_history every saved version
+public class PlanStore {
+    private static final String DELETE_PLAN_SQL = "DELETE FROM meal_planner WHERE plan_id = ?";
+    private static final String DELETE_SLOT_SQL = "DELETE FROM meal_planner WHERE plan_id = ? AND day = ? AND meal_category = ?";
+    private static final String INSERT_SLOT_SQL = "INSERT INTO meal_planner (plan_id, day, meal_category, meal_id) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_HISTORY_SQL = "INSERT INTO plan_history (plan_id, day, meal_category, meal_id) VALUES (?, ?, ?, ?)";
+    private static final String SELECT_PLAN_SQL = "SELECT day, meal_category, meal_id FROM meal_planner " +
+            "WHERE plan_id = ? ORDER BY day, meal_category";
+    private static final String PLAN_COUNTS_SQL = "SELECT meal_id, COUNT(*) AS plan_count FROM plan_history GROUP BY meal_id";
+
+    private static final String INSERT_PLAN_SQL = "INSERT INTO plans (user_name, week) VALUES (?, ?) " +
+            "ON CONFLICT DO NOTHING";
+    private static final String SELECT_PLAN_ID_SQL = "SELECT plan_id FROM plans WHERE user_name = ? AND week = ?";
+
+    private final DatabaseManager dbManager;
+
+    public PlanStore(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+    }
+
+    // Id of the plan of a user for a week, created on first use
+    public int planId(String user, String week) throws SQLException {
+        try (Connection connection = dbManager.getConnection()) {
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_PLAN_SQL)) {
+                insert.setString(1, user);
+                insert.setString(2, week);
+                insert.executeUpdate();
+            }
+            int planId = findPlanId(connection, user, week);
+            if (planId >= 0) {
+                return planId;
+            }
+        }
+        throw new SQLException("Could not create a plan for user " + user + " and week " + week);
+    }
+
+    // Id of the plan of a user for a week, -1 when it has never been created
+    public int findPlanId(String user, String week) throws SQLException {
+        try (Connection connection = dbManager.getConnection()) {
+            return findPlanId(connection, user, week);
+        }
+    }
+
+    private int findPlanId(Connection connection, String user, String week) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement(SELECT_PLAN_ID_SQL)) {
+            select.setString(1, user);
+            select.setString(2, week);
+            try (ResultSet rs = select.executeQuery()) {
+                return rs.next() ? rs.getInt("plan_id") : -1;
+            }
+        }
+    }
+
+    // Replace the stored week of a plan in one transaction and append it to the history
+    public void save(int planId, Map<String, Map<String, Meal>> weeklyPlan) throws SQLException {
+        try (Connection connection = dbManager.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                save(connection, planId, weeklyPlan);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Replace the stored week within the caller's transaction
+    void save(Connection connection, int planId, Map<String, Map<String, Meal>> weeklyPlan) throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement(DELETE_PLAN_SQL);
+             PreparedStatement insert = connection.prepareStatement(INSERT_SLOT_SQL);
+             PreparedStatement history = connection.prepareStatement(INSERT_HISTORY_SQL)) {
+            delete.setInt(1, planId);
+            delete.executeUpdate();
+
+            for (Map.Entry<String, Map<String, Meal>> dayEntry : weeklyPlan.entrySet()) {
+                for (Map.Entry<String, Meal> mealEntry : dayEntry.getValue().entrySet()) {
+                    addSlot(insert, planId, dayEntry.getKey(), mealEntry.getKey(), mealEntry.getValue().getId());
+                    addSlot(history, planId, dayEntry.getKey(), mealEntry.getKey(), mealEntry.getValue().getId());
+                }
+            }
+            insert.executeBatch();
+            history.executeBatch();
+        }
+    }
+
+    // Replace the meal of one slot and record the change in the history
+    public void saveSlot(int planId, String day, String category, int mealId) throws SQLException {
+        try (Connection connection = dbManager.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                saveSlot(connection, planId, day, category, mealId);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Replace one slot within the caller's transaction
+    void saveSlot(Connection connection, int planId, String day, String category, int mealId) throws SQLException {
+        try (PreparedStatement delete = connection.prepareStatement(DELETE_SLOT_SQL);
+             PreparedStatement insert = connection.prepareStatement(INSERT_SLOT_SQL);
+             PreparedStatement history = connection.prepareStatement(INSERT_HISTORY_SQL)) {
+            delete.setInt(1, planId);
+            delete.setString(2, day);
+            delete.setString(3, category);
+            delete.executeUpdate();
+            addSlot(insert, planId, day, category, mealId);
+            addSlot(history, planId, day, category, mealId);
+            insert.executeBatch();
+            history.executeBatch();
+        }
+    }
+
+    private void addSlot(PreparedStatement ps, int planId, String day, String category, int mealId) throws SQLException {
+        ps.setInt(1, planId);
+        ps.setString(2, day);
+        ps.setString(3, category);
+        ps.setInt(4, mealId);
+        ps.addBatch();
+    }
+
+    // The stored slots of a plan, empty when it has never been saved
+    public List<Slot> load(int planId) throws SQLException {
+        List<Slot> slots = new ArrayList<>();
+        try (Connection connection = dbManager.getConnection();
+             PreparedStatement ps = connection.prepareStatement(SELECT_PLAN_SQL)) {
+            ps.setInt(1, planId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    slots.add(new Slot(rs.getString("day"), rs.getString("meal_category"), rs.getInt("meal_id")));
+                }
+            }
+        }
+        return slots;
+    }
+
+    // How often each meal went into a saved plan or slot, counted over the whole history
+    public Map<Integer, Integer> loadPlanCounts() throws SQLException {
+        Map<Integer, Integer> counts = new HashMap<>();
+        try (Connection connection = dbManager.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(PLAN_COUNTS_SQL)) {
+            while (rs.next()) {
+                counts.put(rs.getInt("meal_id"), rs.getInt("plan_count"));
+            }
+        }
+        return counts;
+    }
+
+    public static class Slot {
+        private final String day;
+        private final String category;
+        private final int mealId;
+
+        Slot(String day, String category, int mealId) {
+            this.day = day;
+            this.category = category;
+            this.mealId = mealId;
+        }
+
+        public String getDay() {
+            return day;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public int getMealId() {
+            return mealId;
+        }
+    }
+}
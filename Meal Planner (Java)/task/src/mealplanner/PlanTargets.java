@@ -0,0 +1,74 @@
+package mealplanner;
+
+// Daily nutrition targets, a weekly budget and variety rules for PlanOptimizer; unset targets are unbounded
+public class PlanTargets {
+    private double minCalories = 0;
+    private double maxCalories = Double.MAX_VALUE;
+    private double minProtein = 0;
+    private double maxCarbs = Double.MAX_VALUE;
+    private double maxFat = Double.MAX_VALUE;
+    private double weeklyBudget = Double.MAX_VALUE;
+    private int maxUsesPerMeal = 1;
+
+    public double getMinCalories() {
+        return minCalories;
+    }
+
+    public double getMaxCalories() {
+        return maxCalories;
+    }
+
+    // Calories of each day's planned meals must fall in this range
+    public PlanTargets setCalories(double min, double max) {
+        this.minCalories = min;
+        this.maxCalories = max;
+        return this;
+    }
+
+    public double getMinProtein() {
+        return minProtein;
+    }
+
+    public PlanTargets setMinProtein(double grams) {
+        this.minProtein = grams;
+        return this;
+    }
+
+    public double getMaxCarbs() {
+        return maxCarbs;
+    }
+
+    public PlanTargets setMaxCarbs(double grams) {
+        this.maxCarbs = grams;
+        return this;
+    }
+
+    public double getMaxFat() {
+        return maxFat;
+    }
+
+    public PlanTargets setMaxFat(double grams) {
+        this.maxFat = grams;
+        return this;
+    }
+
+    public double getWeeklyBudget() {
+        return weeklyBudget;
+    }
+
+    // Upper bound of the summed price of all planned meals
+    public PlanTargets setWeeklyBudget(double budget) {
+        this.weeklyBudget = budget;
+        return this;
+    }
+
+    public int getMaxUsesPerMeal() {
+        return maxUsesPerMeal;
+    }
+
+    // How often one meal may appear in the week, 1 means every slot gets a different meal
+    public PlanTargets setMaxUsesPerMeal(int maxUses) {
+        this.maxUsesPerMeal = maxUses;
+        return this;
+    }
+}
@@ -0,0 +1,187 @@
+package mealplanner;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+// Applies numbered schema changes once each and records them in schema_version
+public class SchemaMigrator {
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "base tables",
+                    "CREATE TABLE IF NOT EXISTS meals (" +
+                            "meal_id SERIAL PRIMARY KEY, " +
+                            "category VARCHAR(255), " +
+                            "meal VARCHAR(255))",
+                    "CREATE TABLE IF NOT EXISTS ingredients (" +
+                            "ingredient_id SERIAL PRIMARY KEY, " +
+                            "ingredient VARCHAR(255), " +
+                            "meal_id INT)",
+                    "CREATE TABLE IF NOT EXISTS meal_planner (" +
+                            "day VARCHAR(255), " +
+                            "meal_category VARCHAR(255), " +
+                            "meal_id INT, " +
+                            "FOREIGN KEY (meal_id) REFERENCES meals(meal_id))",
+                    "CREATE TABLE IF NOT EXISTS plan (" +
+                            "meal_option VARCHAR(255), " +
+                            "meal_category VARCHAR(255), " +
+                            "meal_id INT, " +
+                            "FOREIGN KEY (meal_id) REFERENCES meals(meal_id))"),
+            new Migration(2, "indexes and constraints",
+                    // The base schema allowed a name twice; the oldest meal of a name is kept and plans move over to it
+                    "CREATE TABLE meal_duplicates AS " +
+                            "SELECT m.meal_id, k.kept_id FROM meals m " +
+                            "JOIN (SELECT meal, MIN(meal_id) AS kept_id FROM meals GROUP BY meal) k ON k.meal = m.meal " +
+                            "WHERE m.meal_id <> k.kept_id",
+                    "UPDATE meal_planner SET meal_id = " +
+                            "(SELECT d.kept_id FROM meal_duplicates d WHERE d.meal_id = meal_planner.meal_id) " +
+                            "WHERE meal_id IN (SELECT meal_id FROM meal_duplicates)",
+                    "UPDATE plan SET meal_id = " +
+                            "(SELECT d.kept_id FROM meal_duplicates d WHERE d.meal_id = plan.meal_id) " +
+                            "WHERE meal_id IN (SELECT meal_id FROM meal_duplicates)",
+                    "DELETE FROM ingredients WHERE meal_id IN (SELECT meal_id FROM meal_duplicates)",
+                    "DELETE FROM meals WHERE meal_id IN (SELECT meal_id FROM meal_duplicates)",
+                    "DROP TABLE meal_duplicates",
+                    "CREATE INDEX IF NOT EXISTS idx_ingredients_meal_id ON ingredients (meal_id)",
+                    // Rows pointing at no meal can never be read and would block the foreign key
+                    "DELETE FROM ingredients WHERE meal_id IS NULL OR meal_id NOT IN (SELECT meal_id FROM meals)",
+                    "ALTER TABLE ingredients ADD CONSTRAINT fk_ingredients_meal " +
+                            "FOREIGN KEY (meal_id) REFERENCES meals (meal_id) ON DELETE CASCADE",
+                    "ALTER TABLE ingredients ALTER COLUMN meal_id SET NOT NULL",
+                    "CREATE UNIQUE INDEX IF NOT EXISTS uq_meals_meal ON meals (meal)",
+                    "CREATE INDEX IF NOT EXISTS idx_meals_category ON meals (category)",
+                    "CREATE INDEX IF NOT EXISTS idx_meal_planner_day_category ON meal_planner (day, meal_category)",
+                    "CREATE INDEX IF NOT EXISTS idx_plan_option_category ON plan (meal_option, meal_category)"),
+            new Migration(3, "normalized ingredient names",
+                    "CREATE TABLE IF NOT EXISTS ingredient_names (" +
+                            "ingredient_name_id SERIAL PRIMARY KEY, " +
+                            "name VARCHAR(255) NOT NULL UNIQUE)",
+                    "INSERT INTO ingredient_names (name) " +
+                            "SELECT DISTINCT ingredient FROM ingredients WHERE ingredient IS NOT NULL",
+                    "ALTER TABLE ingredients ADD COLUMN ingredient_name_id INT " +
+                            "REFERENCES ingredient_names (ingredient_name_id)",
+                    "UPDATE ingredients SET ingredient_name_id = " +
+                            "(SELECT n.ingredient_name_id FROM ingredient_names n WHERE n.name = ingredients.ingredient)",
+                    "CREATE INDEX IF NOT EXISTS idx_ingredients_name_id ON ingredients (ingredient_name_id)"),
+            new Migration(4, "keyed plan slots and plan history",
+                    "CREATE TABLE IF NOT EXISTS plan_history (" +
+                            "history_id SERIAL PRIMARY KEY, " +
+                            "plan_id INT NOT NULL, " +
+                            "day VARCHAR(255), " +
+                            "meal_category VARCHAR(255), " +
+                            "meal_id INT REFERENCES meals (meal_id), " +
+                            "saved_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)",
+                    "CREATE INDEX IF NOT EXISTS idx_plan_history_plan ON plan_history (plan_id, saved_at)",
+                    // Keep every old row in the history before collapsing the duplicates
+                    "INSERT INTO plan_history (plan_id, day, meal_category, meal_id) " +
+                            "SELECT 1, day, meal_category, meal_id FROM meal_planner",
+                    "CREATE TABLE meal_planner_dedup AS " +
+                            "SELECT day, meal_category, MAX(meal_id) AS meal_id FROM meal_planner GROUP BY day, meal_category",
+                    "DELETE FROM meal_planner",
+                    "ALTER TABLE meal_planner ADD COLUMN plan_id INT NOT NULL DEFAULT 1",
+                    "INSERT INTO meal_planner (plan_id, day, meal_category, meal_id) " +
+                            "SELECT 1, day, meal_category, meal_id FROM meal_planner_dedup",
+                    "DROP TABLE meal_planner_dedup",
+                    "DROP INDEX IF EXISTS idx_meal_planner_day_category",
+                    "CREATE UNIQUE INDEX uq_meal_planner_slot ON meal_planner (plan_id, day, meal_category)"),
+            new Migration(5, "plans per user and week",
+                    "CREATE TABLE IF NOT EXISTS plans (" +
+                            "plan_id SERIAL PRIMARY KEY, " +
+                            "user_name VARCHAR(255) NOT NULL, " +
+                            "week VARCHAR(16) NOT NULL, " +
+                            "UNIQUE (user_name, week))",
+                    // First row of the new table, so it takes plan_id 1 that existing slots already use
+                    "INSERT INTO plans (user_name, week) VALUES ('" + MealManager.DEFAULT_USER + "', '" + MealManager.DEFAULT_WEEK + "')",
+                    "ALTER TABLE meal_planner ALTER COLUMN plan_id DROP DEFAULT",
+                    "ALTER TABLE meal_planner ADD CONSTRAINT fk_meal_planner_plan " +
+                            "FOREIGN KEY (plan_id) REFERENCES plans (plan_id) ON DELETE CASCADE"),
+            new Migration(6, "ingredient nutrition and prices",
+                    // Values for one portion of the ingredient as used in a meal
+                    "CREATE TABLE IF NOT EXISTS ingredient_nutrition (" +
+                            "ingredient_name_id INT PRIMARY KEY REFERENCES ingredient_names (ingredient_name_id), " +
+                            "calories DOUBLE PRECISION NOT NULL, " +
+                            "protein DOUBLE PRECISION NOT NULL, " +
+                            "carbs DOUBLE PRECISION NOT NULL, " +
+                            "fat DOUBLE PRECISION NOT NULL, " +
+                            "price NUMERIC(10, 2) NOT NULL)"),
+            new Migration(7, "catalog change feed and shared meal ids",
+                    // One row per stored meal, written in the meal's transaction; other instances poll it to catch up
+                    "CREATE TABLE IF NOT EXISTS catalog_changes (" +
+                            "change_id SERIAL PRIMARY KEY, " +
+                            "meal_id INT NOT NULL REFERENCES meals (meal_id) ON DELETE CASCADE, " +
+                            "changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)",
+                    // Instances reserve blocks of meal ids here, so ids stay unique when several share the database
+                    "CREATE TABLE IF NOT EXISTS meal_id_blocks (" +
+                            "block_key INT PRIMARY KEY, " +
+                            "next_id INT NOT NULL)",
+                    "INSERT INTO meal_id_blocks (block_key, next_id) SELECT 1, COALESCE(MAX(meal_id), 0) + 1 FROM meals")
+    );
+
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    // Bring the schema up to targetVersion, each migration runs in its own transaction
+    public int migrate(Connection connection, int targetVersion) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("CREATE TABLE IF NOT EXISTS schema_version (" +
+                    "version INT PRIMARY KEY, " +
+                    "description VARCHAR(255), " +
+                    "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        }
+
+        int current = currentVersion(connection);
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version <= current || migration.version > targetVersion) {
+                continue;
+            }
+            apply(connection, migration);
+            current = migration.version;
+        }
+        return current;
+    }
+
+    public int currentVersion(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) AS version FROM schema_version")) {
+            return rs.next() ? rs.getInt("version") : 0;
+        }
+    }
+
+    private void apply(Connection connection, Migration migration) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement()) {
+            for (String sql : migration.statements) {
+                stmt.executeUpdate(sql);
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+                ps.setInt(1, migration.version);
+                ps.setString(2, migration.description);
+                ps.executeUpdate();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw new SQLException("Schema migration " + migration.version + " (" + migration.description
+                    + ") failed - " + e.getMessage(), e);
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static class Migration {
+        private final int version;
+        private final String description;
+        private final String[] statements;
+
+        Migration(int version, String description, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = statements;
+        }
+    }
+}
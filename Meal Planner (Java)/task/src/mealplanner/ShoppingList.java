@@ -0,0 +1,119 @@
+package mealplanner;
+
+import java.util.*;
+
+public class ShoppingList {
+    // Units recognised in ingredients written like "200 g flour" or "2 cups milk"
+    private static final Set<String> UNITS = Set.of("g", "kg", "mg", "ml", "l", "cup", "cups", "tbsp", "tsp", "oz", "lb", "pcs");
+    // Units folded into a base unit before merging, so "1 kg" and "200 g" add up
+    private static final Map<String, String> BASE_UNITS = Map.of("kg", "g", "mg", "g", "l", "ml", "cup", "cups");
+    private static final Map<String, Double> TO_BASE_UNIT = Map.of("kg", 1000.0, "mg", 0.001, "l", 1000.0, "cup", 1.0);
+    // Unit of plain ingredients, which are counted per meal
+    public static final String COUNT = "";
+    private static final double ZERO_TOLERANCE = 1e-9;
+
+    // Ingredient -> unit -> quantity, sorted so every export has the same order
+    private final TreeMap<String, TreeMap<String, Double>> items = new TreeMap<>();
+
+    // Tally the ingredients of one plan
+    public static ShoppingList aggregate(Map<String, Map<String, Meal>> weeklyPlan) {
+        ShoppingList shoppingList = new ShoppingList();
+        shoppingList.addPlan(weeklyPlan);
+        return shoppingList;
+    }
+
+    // Tally the ingredients of many plans in one pass
+    public static ShoppingList aggregate(Collection<WeeklyPlan> plans) {
+        ShoppingList shoppingList = new ShoppingList();
+        for (WeeklyPlan plan : plans) {
+            shoppingList.addPlan(plan.asMap());
+        }
+        return shoppingList;
+    }
+
+    public void addPlan(Map<String, Map<String, Meal>> weeklyPlan) {
+        for (Map<String, Meal> dayMeals : weeklyPlan.values()) {
+            for (Meal meal : dayMeals.values()) {
+                addMeal(meal);
+            }
+        }
+    }
+
+    public void addMeal(Meal meal) {
+        IngredientDictionary dictionary = IngredientDictionary.shared();
+        for (int i = 0; i < meal.ingredientCount(); i++) {
+            addIngredient(dictionary.name(meal.ingredientId(i)));
+        }
+    }
+
+    // Take a meal back out, the exact inverse of addMeal
+    public void removeMeal(Meal meal) {
+        IngredientDictionary dictionary = IngredientDictionary.shared();
+        for (int i = 0; i < meal.ingredientCount(); i++) {
+            addIngredient(dictionary.name(meal.ingredientId(i)), -1);
+        }
+    }
+
+    // Quantities of the same ingredient are merged per unit
+    public void addIngredient(String ingredient) {
+        addIngredient(ingredient, 1);
+    }
+
+    private void addIngredient(String ingredient, int sign) {
+        String[] parts = ingredient.trim().split("\\s+", 3);
+        if (parts.length == 3 && isNumber(parts[0]) && UNITS.contains(parts[1])) {
+            String unit = BASE_UNITS.getOrDefault(parts[1], parts[1]);
+            add(parts[2], unit, sign * Double.parseDouble(parts[0]) * TO_BASE_UNIT.getOrDefault(parts[1], 1.0));
+        } else {
+            add(ingredient, COUNT, sign);
+        }
+    }
+
+    private void add(String name, String unit, double quantity) {
+        TreeMap<String, Double> units = items.computeIfAbsent(name, k -> new TreeMap<>());
+        double total = units.getOrDefault(unit, 0.0) + quantity;
+        // Removing the last meal that needs an ingredient drops it, rounding residue included
+        if (Math.abs(total) < ZERO_TOLERANCE) {
+            units.remove(unit);
+            if (units.isEmpty()) {
+                items.remove(name);
+            }
+        } else {
+            units.put(unit, total);
+        }
+    }
+
+    private static boolean isNumber(String token) {
+        boolean digit = false;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digit = true;
+            } else if (c != '.') {
+                return false;
+            }
+        }
+        return digit && token.indexOf('.') == token.lastIndexOf('.');
+    }
+
+    // Independent copy, later changes to either list don't show in the other
+    public ShoppingList copy() {
+        ShoppingList copy = new ShoppingList();
+        items.forEach((name, units) -> copy.items.put(name, new TreeMap<>(units)));
+        return copy;
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public SortedMap<String, TreeMap<String, Double>> getItems() {
+        return Collections.unmodifiableSortedMap(items);
+    }
+
+    // Plain ingredient counts, the shape saveShoppingList used to write
+    public int getCount(String ingredient) {
+        TreeMap<String, Double> units = items.get(ingredient);
+        return units == null ? 0 : units.getOrDefault(COUNT, 0.0).intValue();
+    }
+}
@@ -0,0 +1,136 @@
+package mealplanner;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class ShoppingListExporter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public enum Format {
+        TEXT, CSV, JSON;
+
+        // Pick the format from the file extension, plain text by default
+        public static Format forFile(String filename) {
+            String lower = filename.toLowerCase();
+            if (lower.endsWith(".csv")) {
+                return CSV;
+            }
+            if (lower.endsWith(".json")) {
+                return JSON;
+            }
+            return TEXT;
+        }
+    }
+
+    // Stream the list to a file through a buffered channel writer, items in ingredient order
+    public Report export(ShoppingList shoppingList, Path file, Format format) throws IOException {
+        long start = System.nanoTime();
+        int lines = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            if (format == Format.CSV) {
+                writer.write("ingredient,quantity,unit\n");
+            } else if (format == Format.JSON) {
+                writer.write("[");
+            }
+            for (Map.Entry<String, TreeMap<String, Double>> item : shoppingList.getItems().entrySet()) {
+                for (Map.Entry<String, Double> quantity : item.getValue().entrySet()) {
+                    writeItem(writer, format, lines, item.getKey(), quantity.getKey(), quantity.getValue());
+                    lines++;
+                }
+            }
+            if (format == Format.JSON) {
+                writer.write("]\n");
+            }
+            writer.flush();
+            return new Report(lines, channel.size(), System.nanoTime() - start);
+        }
+    }
+
+    private void writeItem(Writer writer, Format format, int index, String ingredient, String unit, double quantity) throws IOException {
+        switch (format) {
+            case TEXT -> {
+                writer.write(ingredient);
+                if (!unit.equals(ShoppingList.COUNT)) {
+                    writer.write(' ');
+                    writer.write(formatQuantity(quantity));
+                    writer.write(' ');
+                    writer.write(unit);
+                } else if (quantity > 1) {
+                    writer.write(" x");
+                    writer.write(formatQuantity(quantity));
+                }
+                writer.write('\n');
+            }
+            case CSV -> {
+                writer.write(csvField(ingredient));
+                writer.write(',');
+                writer.write(formatQuantity(quantity));
+                writer.write(',');
+                writer.write(csvField(unit));
+                writer.write('\n');
+            }
+            case JSON -> {
+                if (index > 0) {
+                    writer.write(',');
+                }
+                writer.write("\n  {\"ingredient\": ");
+                writer.write(Json.quote(ingredient));
+                writer.write(", \"quantity\": ");
+                writer.write(formatQuantity(quantity));
+                writer.write(", \"unit\": ");
+                writer.write(Json.quote(unit));
+                writer.write('}');
+            }
+        }
+    }
+
+    private static String formatQuantity(double quantity) {
+        return quantity == Math.rint(quantity) ? Long.toString((long) quantity) : Double.toString(quantity);
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    public static class Report {
+        private final int lines;
+        private final long bytesWritten;
+        private final long elapsedNanos;
+
+        Report(int lines, long bytesWritten, long elapsedNanos) {
+            this.lines = lines;
+            this.bytesWritten = bytesWritten;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getLines() {
+            return lines;
+        }
+
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        public double getElapsedMillis() {
+            return elapsedNanos / 1_000_000.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Wrote %d items (%d bytes) in %.2f ms", lines, bytesWritten, getElapsedMillis());
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package mealplanner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+// Meals with similar ingredient sets, found through MinHash signatures and locality-sensitive hashing.
+// A meal's signature is split into bands of a few hashes each; meals that agree on a whole band share a bucket.
+// Only meals sharing a bucket with the query are compared, by exact Jaccard similarity of their ingredient ids.
+// With b bands of r rows, a pair with similarity s becomes a candidate with probability 1 - (1 - s^r)^b.
+public class SimilarityIndex {
+    public static final int DEFAULT_BANDS = 20;
+    public static final int DEFAULT_ROWS = 3;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NO_MEAL = -1;
+    // A bucket whose last meal was removed; lookups probe past it, rebuilding the tables drops it
+    private static final int REMOVED_BUCKET = -2;
+    // Candidates read from one bucket at most. Buckets this large come from bands made of staple ingredients
+    // (salt, eggs, ...) and say little about similarity; the meal's other bands still find its real neighbours.
+    private static final int MAX_BUCKET_SCAN = Integer.getInteger("mealplanner.similar.maxBucketScan", 256);
+
+    private final int bands;
+    private final int rows;
+    // MinHash function i is x -> multipliers[i] * mix(x) + offsets[i], a permutation of int for odd multipliers.
+    // Fixed seeds keep bucket keys stable between runs.
+    private final int[] multipliers;
+    private final int[] offsets;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Meals by slot, in the order they were added; null for removed meals
+    private Meal[] meals = new Meal[INITIAL_CAPACITY];
+    private int size;
+    private int removed;
+    // Per band: the bucket key of every slot, and the next slot in the same hash chain
+    private int[][] keys;
+    private int[][] next;
+    // Per band: open hash table from bucket key to the first slot of its chain, twice as large as the meal count
+    private int[][] heads;
+
+    // A similar meal with its Jaccard similarity to the query
+    public static class Match {
+        private final Meal meal;
+        private final double similarity;
+
+        Match(Meal meal, double similarity) {
+            this.meal = meal;
+            this.similarity = similarity;
+        }
+
+        public Meal getMeal() {
+            return meal;
+        }
+
+        public double getSimilarity() {
+            return similarity;
+        }
+    }
+
+    private static final Comparator<Match> RANKING = Comparator.comparingDouble(Match::getSimilarity).reversed()
+            .thenComparing(match -> match.getMeal().getName());
+
+    public SimilarityIndex() {
+        this(DEFAULT_BANDS, DEFAULT_ROWS);
+    }
+
+    public SimilarityIndex(int bands, int rows) {
+        this.bands = bands;
+        this.rows = rows;
+        this.multipliers = new int[bands * rows];
+        this.offsets = new int[bands * rows];
+        Random random = new Random(0x5EED);
+        for (int i = 0; i < multipliers.length; i++) {
+            multipliers[i] = random.nextInt() | 1;
+            offsets[i] = random.nextInt();
+        }
+        this.keys = new int[bands][INITIAL_CAPACITY];
+        this.next = new int[bands][INITIAL_CAPACITY];
+        this.heads = new int[bands][];
+        for (int band = 0; band < bands; band++) {
+            heads[band] = emptyTable(2 * INITIAL_CAPACITY);
+        }
+    }
+
+    public void add(Meal meal) {
+        addAll(List.of(meal));
+    }
+
+    // Signatures of a loaded catalog are computed on all cores, only linking them into buckets is sequential
+    public void addAll(List<Meal> newMeals) {
+        int[][] mealKeys = new int[newMeals.size()][];
+        IntStream.range(0, mealKeys.length).parallel()
+                .forEach(i -> mealKeys[i] = bandKeys(newMeals.get(i)));
+        lock.writeLock().lock();
+        try {
+            if (size + mealKeys.length > meals.length) {
+                grow(size + mealKeys.length);
+            }
+            for (int i = 0; i < mealKeys.length; i++) {
+                int slot = size++;
+                meals[slot] = newMeals.get(i);
+                for (int band = 0; band < bands; band++) {
+                    keys[band][slot] = mealKeys[i][band];
+                    link(band, slot);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Drop a meal from every band it was linked into, false when it is not in the index.
+    // Its slot stays empty until the index grows and rebuilds its bucket tables.
+    public boolean remove(Meal meal) {
+        int[] mealKeys = bandKeys(meal);
+        lock.writeLock().lock();
+        try {
+            int slot = NO_MEAL;
+            for (int band = 0; band < bands; band++) {
+                slot = unlink(band, mealKeys[band], meal);
+                if (slot == NO_MEAL) {
+                    return false;
+                }
+            }
+            meals[slot] = null;
+            removed++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size - removed;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The meals most similar to the given one, best first; the meal itself is left out, category null means any
+    public List<Match> similar(Meal meal, int limit, MealCategory category) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        int[] bandKeys = bandKeys(meal);
+        // Bounded heap holding the best 'limit' matches, its head is the worst of them
+        PriorityQueue<Match> best = new PriorityQueue<>(RANKING.reversed());
+
+        lock.readLock().lock();
+        try {
+            // Candidates often share several buckets with the query, each one is scored once
+            BitSet seen = new BitSet(size);
+            // The query's ingredients as a lookup table, so scoring a candidate is linear in its ingredients
+            BitSet queryIngredients = new BitSet();
+            for (int i = 0; i < meal.ingredientCount(); i++) {
+                queryIngredients.set(meal.ingredientId(i));
+            }
+            for (int band = 0; band < bands; band++) {
+                int key = bandKeys[band];
+                int[] table = heads[band];
+                int mask = table.length - 1;
+                for (int bucket = mix(key) & mask; table[bucket] != NO_MEAL; bucket = (bucket + 1) & mask) {
+                    int head = table[bucket];
+                    if (head == REMOVED_BUCKET || keys[band][head] != key) {
+                        continue;
+                    }
+                    int scanned = 0;
+                    for (int slot = head; slot != NO_MEAL && scanned++ < MAX_BUCKET_SCAN; slot = next[band][slot]) {
+                        if (seen.get(slot)) {
+                            continue;
+                        }
+                        seen.set(slot);
+                        Meal candidate = meals[slot];
+                        if (candidate.getId() == meal.getId() || (category != null && candidate.getCategory() != category)) {
+                            continue;
+                        }
+                        double similarity = jaccard(queryIngredients, meal.ingredientCount(), candidate);
+                        if (best.size() < limit || similarity > best.peek().getSimilarity()) {
+                            best.offer(new Match(candidate, similarity));
+                            if (best.size() > limit) {
+                                best.poll();
+                            }
+                        }
+                    }
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Match> matches = new ArrayList<>(best);
+        matches.sort(RANKING);
+        return matches;
+    }
+
+    // Exact similarity of two ingredient sets: shared ingredients over all ingredients
+    public static double jaccard(Meal first, Meal second) {
+        int shared = 0;
+        for (int i = 0; i < second.ingredientCount(); i++) {
+            if (first.hasIngredient(second.ingredientId(i))) {
+                shared++;
+            }
+        }
+        int union = first.ingredientCount() + second.ingredientCount() - shared;
+        return union == 0 ? 0 : (double) shared / union;
+    }
+
+    private static double jaccard(BitSet first, int firstSize, Meal second) {
+        int shared = 0;
+        int secondSize = second.ingredientCount();
+        for (int i = 0; i < secondSize; i++) {
+            if (first.get(second.ingredientId(i))) {
+                shared++;
+            }
+        }
+        int union = firstSize + secondSize - shared;
+        return union == 0 ? 0 : (double) shared / union;
+    }
+
+    // MinHash signature folded into one key per band
+    private int[] bandKeys(Meal meal) {
+        // Mixed once, every hash function is then a multiply and an add
+        int[] mixed = new int[meal.ingredientCount()];
+        for (int i = 0; i < mixed.length; i++) {
+            mixed[i] = mix(meal.ingredientId(i));
+        }
+        int[] bandKeys = new int[bands];
+        for (int band = 0; band < bands; band++) {
+            int key = band;
+            for (int row = 0; row < rows; row++) {
+                int function = band * rows + row;
+                int multiplier = multipliers[function];
+                int offset = offsets[function];
+                int min = Integer.MAX_VALUE;
+                for (int value : mixed) {
+                    min = Math.min(min, multiplier * value + offset);
+                }
+                key = 31 * key + min;
+            }
+            bandKeys[band] = key;
+        }
+        return bandKeys;
+    }
+
+    // Put a slot at the front of its bucket's chain, adding the bucket to the table when it is new
+    private void link(int band, int slot) {
+        int key = keys[band][slot];
+        int[] table = heads[band];
+        int mask = table.length - 1;
+        int bucket = mix(key) & mask;
+        while (table[bucket] != NO_MEAL && (table[bucket] == REMOVED_BUCKET || keys[band][table[bucket]] != key)) {
+            bucket = (bucket + 1) & mask;
+        }
+        next[band][slot] = table[bucket];
+        table[bucket] = slot;
+    }
+
+    // Take the meal's slot out of its chain in one band, returns the slot or NO_MEAL when it is not there
+    private int unlink(int band, int key, Meal meal) {
+        int[] table = heads[band];
+        int mask = table.length - 1;
+        for (int bucket = mix(key) & mask; table[bucket] != NO_MEAL; bucket = (bucket + 1) & mask) {
+            int head = table[bucket];
+            if (head == REMOVED_BUCKET || keys[band][head] != key) {
+                continue;
+            }
+            int previous = NO_MEAL;
+            for (int slot = head; slot != NO_MEAL; slot = next[band][slot]) {
+                Meal candidate = meals[slot];
+                if (candidate.getId() == meal.getId() && candidate.getName().equals(meal.getName())) {
+                    if (previous != NO_MEAL) {
+                        next[band][previous] = next[band][slot];
+                    } else {
+                        table[bucket] = next[band][slot] == NO_MEAL ? REMOVED_BUCKET : next[band][slot];
+                    }
+                    return slot;
+                }
+                previous = slot;
+            }
+            return NO_MEAL;
+        }
+        return NO_MEAL;
+    }
+
+    // Enlarge the slot arrays to the next power of two that fits, and rebuild the bucket tables at that size
+    private void grow(int minCapacity) {
+        int capacity = meals.length;
+        while (capacity < minCapacity) {
+            capacity *= 2;
+        }
+        meals = Arrays.copyOf(meals, capacity);
+        for (int band = 0; band < bands; band++) {
+            keys[band] = Arrays.copyOf(keys[band], capacity);
+            next[band] = new int[capacity];
+            heads[band] = emptyTable(2 * capacity);
+            // Oldest first, so every chain keeps newest-first order like incremental adds; removed slots stay out
+            for (int slot = 0; slot < size; slot++) {
+                if (meals[slot] != null) {
+                    link(band, slot);
+                }
+            }
+        }
+    }
+
+    private static int[] emptyTable(int length) {
+        int[] table = new int[length];
+        Arrays.fill(table, NO_MEAL);
+        return table;
+    }
+
+    // Murmur3 finalizer, spreads ingredient ids and bucket keys over all bits
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,41 @@
+package mealplanner;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class WeeklyPlan {
+    public static final String[] DAYS = {"Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday"};
+    public static final String[] CATEGORIES = {"breakfast", "lunch", "dinner"};
+
+    private final Map<String, Map<String, Meal>> days = new LinkedHashMap<>();
+
+    public void put(String day, String category, Meal meal) {
+        days.computeIfAbsent(day, k -> new LinkedHashMap<>()).put(category, meal);
+    }
+
+    public Meal get(String day, String category) {
+        Map<String, Meal> mealsForDay = days.get(day);
+        return mealsForDay == null ? null : mealsForDay.get(category);
+    }
+
+    // Independent copy of the slots, the meals themselves are shared
+    public WeeklyPlan copy() {
+        WeeklyPlan copy = new WeeklyPlan();
+        days.forEach((day, slots) -> copy.days.put(day, new LinkedHashMap<>(slots)));
+        return copy;
+    }
+
+    // Number of filled slots, at most 21
+    public int size() {
+        int size = 0;
+        for (Map<String, Meal> mealsForDay : days.values()) {
+            size += mealsForDay.size();
+        }
+        return size;
+    }
+
+    // Day -> category -> meal, in the same shape MealManager keeps its plan
+    public Map<String, Map<String, Meal>> asMap() {
+        return days;
+    }
+}
@@ -0,0 +1,280 @@
+package mealplanner;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Queues meal inserts, plan saves and slot replacements and writes them from a background thread in batched transactions.
+// Writes already visible in memory are lost if the process dies before they are flushed.
+// A write that cannot be stored is handed to its failure callback, so the caller can undo it in memory.
+public class WriteBehindWriter implements AutoCloseable {
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MS = 100;
+
+    private final MealRepository repository;
+    private final BlockingQueue<QueuedWrite> queue;
+    private final int maxBatchSize;
+    private final Thread thread;
+    // Sequence numbers are handed out in queue order, written under enqueueLock
+    private final Object enqueueLock = new Object();
+    private volatile long lastQueued;
+    // Highest sequence number written or failed, guarded by flushMonitor
+    private final Object flushMonitor = new Object();
+    private long lastCompleted;
+    private long failed;
+    private volatile boolean closed;
+
+    public WriteBehindWriter(MealRepository repository, int capacity, int maxBatchSize) {
+        this.repository = repository;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.thread = new Thread(this::run, "write-behind");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Queue a new meal, blocks while the queue is full; returns the write's sequence number for flush
+    public long addMeal(Meal meal, Consumer<SQLException> onFailure) {
+        return enqueue(meal, onFailure);
+    }
+
+    // Queue a plan save, only the latest save of a plan within one batch is written
+    public long savePlan(int planId, Map<String, Map<String, Meal>> weeklyPlan, Consumer<SQLException> onFailure) {
+        Map<String, Map<String, Meal>> snapshot = new LinkedHashMap<>();
+        weeklyPlan.forEach((day, slots) -> snapshot.put(day, new LinkedHashMap<>(slots)));
+        return enqueue(new PlanWrite(planId, snapshot), onFailure);
+    }
+
+    // Queue the replacement of one slot, the other stored slots of the plan are left alone
+    public long saveSlot(int planId, String day, String category, Meal meal, Consumer<SQLException> onFailure) {
+        return enqueue(new SlotWrite(planId, day, category, meal), onFailure);
+    }
+
+    private long enqueue(Object write, Consumer<SQLException> onFailure) {
+        if (closed) {
+            throw new IllegalStateException("Write-behind writer is closed");
+        }
+        synchronized (enqueueLock) {
+            QueuedWrite queued = new QueuedWrite(lastQueued + 1, write, onFailure);
+            if (!queue.offer(queued)) {
+                // Backpressure: the caller waits for the writer instead of growing the queue
+                long start = System.nanoTime();
+                try {
+                    queue.put(queued);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the write-behind queue", e);
+                }
+                Metrics.timer("writeBehind.backpressure").recordNanos(System.nanoTime() - start);
+            }
+            lastQueued = queued.seq;
+            return queued.seq;
+        }
+    }
+
+    // Block until the write with the given sequence number and everything queued before it is written or has failed
+    public void flush(long seq) throws InterruptedException {
+        synchronized (flushMonitor) {
+            while (lastCompleted < seq) {
+                flushMonitor.wait();
+            }
+        }
+    }
+
+    // Block until everything queued so far is written or has failed, later writes are not waited for
+    public void flush() throws InterruptedException {
+        flush(lastQueued);
+    }
+
+    // Whether the write with the given sequence number is written or has failed
+    public boolean isWritten(long seq) {
+        synchronized (flushMonitor) {
+            return lastCompleted >= seq;
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getFailedWrites() {
+        synchronized (flushMonitor) {
+            return failed;
+        }
+    }
+
+    private void run() {
+        List<QueuedWrite> batch = new ArrayList<>(maxBatchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                QueuedWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+            } catch (InterruptedException e) {
+                // Closing, drain whatever is left
+                queue.drainTo(batch);
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    // Retry the batch as a whole, then write each entry on its own so only the bad writes fail
+    private void writeBatch(List<QueuedWrite> batch) {
+        SQLException error = writeWithRetry(batch);
+        long failedCount = 0;
+        if (error != null) {
+            Metrics.increment("writeBehind.split");
+            for (QueuedWrite write : batch) {
+                SQLException single = batch.size() == 1 ? error : writeOnce(List.of(write));
+                if (single != null) {
+                    failedCount++;
+                    fail(write, single);
+                }
+            }
+        }
+        completed(batch.get(batch.size() - 1).seq, failedCount);
+    }
+
+    private SQLException writeWithRetry(List<QueuedWrite> batch) {
+        for (int attempt = 1; ; attempt++) {
+            SQLException error = writeOnce(batch);
+            if (error == null || attempt == MAX_ATTEMPTS) {
+                return error;
+            }
+            try {
+                Thread.sleep(RETRY_DELAY_MS * attempt);
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private SQLException writeOnce(List<QueuedWrite> batch) {
+        try {
+            write(batch);
+            return null;
+        } catch (SQLException e) {
+            return e;
+        } catch (RuntimeException e) {
+            // A bug in one write fails its entries instead of stopping the writer, flush would wait forever
+            return new SQLException("Unexpected error while writing: " + e, e);
+        }
+    }
+
+    // One repository write per batch: meals first so plans in the same batch can reference them.
+    // A plan save drops the slot replacements queued before it, a later slot replacement is folded into the saved week.
+    private void write(List<QueuedWrite> batch) throws SQLException {
+        List<Meal> meals = new ArrayList<>();
+        Map<Integer, Map<String, Map<String, Meal>>> plans = new LinkedHashMap<>();
+        Map<Integer, List<PlanStore.Slot>> slots = new LinkedHashMap<>();
+        int slotCount = 0;
+        for (QueuedWrite queued : batch) {
+            if (queued.write instanceof Meal meal) {
+                meals.add(meal);
+            } else if (queued.write instanceof PlanWrite plan) {
+                plans.remove(plan.planId);
+                plans.put(plan.planId, plan.weeklyPlan);
+                slotCount -= slots.getOrDefault(plan.planId, List.of()).size();
+                slots.remove(plan.planId);
+            } else if (queued.write instanceof SlotWrite slot) {
+                Map<String, Map<String, Meal>> saved = plans.get(slot.planId);
+                if (saved != null) {
+                    // Copied, the queued snapshot is written on its own if the batch is split
+                    Map<String, Map<String, Meal>> folded = new LinkedHashMap<>();
+                    saved.forEach((day, dayMeals) -> folded.put(day, new LinkedHashMap<>(dayMeals)));
+                    folded.computeIfAbsent(slot.day, k -> new LinkedHashMap<>()).put(slot.category, slot.meal);
+                    plans.put(slot.planId, folded);
+                } else {
+                    slots.computeIfAbsent(slot.planId, k -> new ArrayList<>())
+                            .add(new PlanStore.Slot(slot.day, slot.category, slot.meal.getId()));
+                    slotCount++;
+                }
+            }
+        }
+
+        Metrics.run("writeBehind.batch", () -> repository.write(meals, plans, slots));
+        Metrics.add("writeBehind.written", batch.size());
+        Metrics.add("writeBehind.coalesced", batch.size() - meals.size() - plans.size() - slotCount);
+    }
+
+    private void fail(QueuedWrite write, SQLException error) {
+        Metrics.increment("writeBehind.failed");
+        System.err.println("Write-behind write failed: " + error.getMessage());
+        try {
+            write.onFailure.accept(error);
+        } catch (RuntimeException e) {
+            // The writer keeps going, the remaining writes still get their callbacks
+            System.err.println("Write-behind failure callback failed: " + e);
+        }
+    }
+
+    private void completed(long seq, long failedCount) {
+        synchronized (flushMonitor) {
+            lastCompleted = Math.max(lastCompleted, seq);
+            failed += failedCount;
+            flushMonitor.notifyAll();
+        }
+    }
+
+    // Stop accepting writes and wait until the queue is written
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Writes that raced with closing are written on the caller's thread
+        List<QueuedWrite> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            writeBatch(rest);
+        }
+    }
+
+    private static class QueuedWrite {
+        private final long seq;
+        private final Object write;
+        private final Consumer<SQLException> onFailure;
+
+        QueuedWrite(long seq, Object write, Consumer<SQLException> onFailure) {
+            this.seq = seq;
+            this.write = write;
+            this.onFailure = onFailure;
+        }
+    }
+
+    private static class PlanWrite {
+        private final int planId;
+        private final Map<String, Map<String, Meal>> weeklyPlan;
+
+        PlanWrite(int planId, Map<String, Map<String, Meal>> weeklyPlan) {
+            this.planId = planId;
+            this.weeklyPlan = weeklyPlan;
+        }
+    }
+
+    private static class SlotWrite {
+        private final int planId;
+        private final String day;
+        private final String category;
+        private final Meal meal;
+
+        SlotWrite(int planId, String day, String category, Meal meal) {
+            this.planId = planId;
+            this.day = day;
+            this.category = category;
+            this.meal = meal;
+        }
+    }
+}